@@ -0,0 +1,115 @@
+package niilo.investment.analytics;
+
+import jakarta.annotation.PostConstruct;
+import niilo.investment.money.Money;
+import niilo.investment.statistics.MonthlyTotal;
+import niilo.investment.stock.PurchaseTotal;
+import niilo.investment.stock.StocksSavedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Month;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running cost totals per month and per employee and month, so the monthly reports read a handful of counters
+ * instead of the whole table. Totals are seeded from the monthly_employee_totals rollup at startup and grow as
+ * purchases are committed. LongAdder spreads concurrent additions over its cells, so parallel ingests do not contend
+ * on one counter.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class MonthlyCostAccumulator {
+
+    private static final String LOAD_TOTALS = """
+            SELECT employee_id, purchase_year, purchase_month, total_cost FROM monthly_employee_totals""";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentMap<YearMonth, LongAdder> costs = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Long, ConcurrentMap<YearMonth, LongAdder>> employeeCosts = new ConcurrentHashMap<>();
+
+    /**
+     * Runs before the application starts taking requests, so no purchase can be missed or counted twice. The rollup
+     * has one row per employee and month, so this reads far fewer rows than the stocks.
+     */
+    @PostConstruct
+    void load() {
+        jdbcTemplate.query(LOAD_TOTALS, resultSet -> {
+            add(resultSet.getLong(1), YearMonth.of(resultSet.getInt(2), resultSet.getInt(3)), resultSet.getLong(4));
+        });
+    }
+
+    /**
+     * Runs before DataVersion moves on, so no response of the new version is built from the old totals.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    void stocksSaved(StocksSavedEvent event) {
+        for (PurchaseTotal total : event.getTotals()) {
+            add(total.getEmployeeId(), YearMonth.of(total.getPurchaseYear(), total.getPurchaseMonth()),
+                    total.getTotalCost());
+        }
+    }
+
+    /**
+     * Cost of all the purchases in minor units, grouped by the month they were made in.
+     * @return totals of the months that had purchases.
+     */
+    public List<MonthlyTotal> sumCostGroupedByMonth() {
+        return toMonthlyTotals(costs);
+    }
+
+    /**
+     * Cost of the purchases of one employee in minor units, grouped by the month they were made in.
+     * @return totals of the months that had purchases.
+     */
+    public List<MonthlyTotal> sumCostOfEmployeeGroupedByMonth(Long employeeId) {
+        return toMonthlyTotals(employeeCosts.getOrDefault(employeeId, new ConcurrentHashMap<>()));
+    }
+
+    /**
+     * Adds a cost to the totals of a month, a negative cost takes it away. Additions commute, so concurrent callers
+     * do not have to be ordered.
+     */
+    public void add(long employeeId, YearMonth month, long cost) {
+        costs.computeIfAbsent(month, key -> new LongAdder()).add(cost);
+        employeeCosts.computeIfAbsent(employeeId, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(month, key -> new LongAdder()).add(cost);
+    }
+
+    /**
+     * Folds the years together, the reports show months of the year.
+     */
+    private List<MonthlyTotal> toMonthlyTotals(Map<YearMonth, LongAdder> costs) {
+        long[] monthlyCosts = new long[Month.values().length + 1];
+        boolean[] bought = new boolean[monthlyCosts.length];
+        costs.forEach((yearMonth, cost) -> {
+            long sum = cost.sum();
+            if (sum != 0) {
+                int month = yearMonth.getMonthValue();
+                monthlyCosts[month] = Money.add(monthlyCosts[month], sum);
+                bought[month] = true;
+            }
+        });
+        List<MonthlyTotal> monthlyTotals = new ArrayList<>();
+        for (int month = 1; month < monthlyCosts.length; month++) {
+            if (bought[month]) {
+                monthlyTotals.add(new MonthlyTotal(month, monthlyCosts[month]));
+            }
+        }
+        return monthlyTotals;
+    }
+}
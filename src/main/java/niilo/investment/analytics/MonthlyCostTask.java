@@ -0,0 +1,70 @@
+package niilo.investment.analytics;
+
+import niilo.investment.money.Money;
+
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Sums the cost of a range of column store rows by month. The range is split in halves on the fork/join pool until
+ * the pieces are small enough to scan, and the halves are merged back in order. The caller has to hold the read lock
+ * of the store until the task is done.
+ */
+class MonthlyCostTask extends RecursiveTask<MonthlyCosts> {
+
+    private final byte[] months;
+    private final long[] employeeIds;
+    private final long[] prices;
+    private final long[] volumes;
+    private final Long employeeId;
+    private final int from;
+    private final int to;
+    private final int chunkSize;
+
+    /**
+     * @param employeeId only the rows of this employee, null for all of them.
+     * @param from first row of the range.
+     * @param to row after the last one of the range.
+     * @param chunkSize ranges this long or shorter are scanned without splitting.
+     */
+    MonthlyCostTask(byte[] months, long[] employeeIds, long[] prices, long[] volumes, Long employeeId,
+                    int from, int to, int chunkSize) {
+        this.months = months;
+        this.employeeIds = employeeIds;
+        this.prices = prices;
+        this.volumes = volumes;
+        this.employeeId = employeeId;
+        this.from = from;
+        this.to = to;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    protected MonthlyCosts compute() {
+        if (to - from <= chunkSize) {
+            return scan();
+        }
+        int middle = (from + to) >>> 1;
+        MonthlyCostTask left = new MonthlyCostTask(months, employeeIds, prices, volumes, employeeId,
+                from, middle, chunkSize);
+        MonthlyCostTask right = new MonthlyCostTask(months, employeeIds, prices, volumes, employeeId,
+                middle, to, chunkSize);
+        left.fork();
+        MonthlyCosts rightCosts = right.compute();
+        return left.join().merge(rightCosts);
+    }
+
+    /**
+     * Scans the whole range on the calling thread.
+     */
+    MonthlyCosts scan() {
+        MonthlyCosts monthlyCosts = new MonthlyCosts();
+        boolean allEmployees = employeeId == null;
+        long employee = allEmployees ? 0 : employeeId;
+        for (int i = from; i < to; i++) {
+            if (allEmployees || employeeIds[i] == employee) {
+                monthlyCosts.add(months[i], Money.multiply(prices[i], volumes[i]));
+            }
+        }
+        return monthlyCosts;
+    }
+}
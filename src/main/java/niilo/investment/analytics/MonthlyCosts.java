@@ -0,0 +1,47 @@
+package niilo.investment.analytics;
+
+import niilo.investment.money.Money;
+import niilo.investment.statistics.MonthlyTotal;
+
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Costs in minor units and purchase counts by month number, a partial result of a scan of the column store.
+ */
+class MonthlyCosts {
+
+    private final long[] costs = new long[Month.values().length + 1];
+    private final long[] purchases = new long[costs.length];
+
+    void add(int month, long cost) {
+        costs[month] = Money.add(costs[month], cost);
+        purchases[month]++;
+    }
+
+    /**
+     * Adds the other partial result to this one. Sums of minor units do not depend on the order they are added in,
+     * so the merged result is the same however the rows were split.
+     */
+    MonthlyCosts merge(MonthlyCosts other) {
+        for (int month = 1; month < costs.length; month++) {
+            costs[month] = Money.add(costs[month], other.costs[month]);
+            purchases[month] += other.purchases[month];
+        }
+        return this;
+    }
+
+    /**
+     * Totals of the months that had purchases.
+     */
+    List<MonthlyTotal> toMonthlyTotals() {
+        List<MonthlyTotal> monthlyTotals = new ArrayList<>();
+        for (int month = 1; month < costs.length; month++) {
+            if (purchases[month] > 0) {
+                monthlyTotals.add(new MonthlyTotal(month, costs[month]));
+            }
+        }
+        return monthlyTotals;
+    }
+}
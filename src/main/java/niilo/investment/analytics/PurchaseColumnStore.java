@@ -0,0 +1,265 @@
+package niilo.investment.analytics;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import niilo.investment.employee.Employee;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.sharedata.ShareDataRepository;
+import niilo.investment.statistics.MonthlyStockDTO;
+import niilo.investment.statistics.MonthlyTotal;
+import niilo.investment.stock.Stock;
+import niilo.investment.stock.StocksSavedEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Purchases kept column by column in primitive arrays, so the reports can loop over them without loading entities.
+ * A row takes 45 bytes, against several hundred for a Stock entity with its date, boxed numbers and references.
+ * Turned on with investment.analytics.column-store.enabled, it is loaded from the database at startup and new
+ * purchases are added once their transaction has committed.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class PurchaseColumnStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    /**
+     * Rows below this are scanned faster than a task is handed to another thread.
+     */
+    private static final int MIN_CHUNK_SIZE = 16_384;
+    /**
+     * A few chunks per thread, so threads that finish early can steal the rest.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final String LOAD_PURCHASES = """
+            SELECT id, date, employee_id, share_data_id, price_per_share, volume_acquired FROM stocks""";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ShareDataRepository shareDataRepository;
+
+    @Value("${investment.analytics.column-store.enabled:false}")
+    private boolean enabled;
+
+    @Value("${investment.analytics.parallel-threshold:200000}")
+    private int parallelThreshold;
+
+    /**
+     * Threads of the aggregation pool, 0 to use the common pool.
+     */
+    @Value("${investment.analytics.parallelism:0}")
+    private int parallelism;
+
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private int size;
+    private long[] stockIds = new long[INITIAL_CAPACITY];
+    private int[] epochDays = new int[INITIAL_CAPACITY];
+    /**
+     * Month of the epoch day, kept so the monthly loops do not have to build dates.
+     */
+    private byte[] months = new byte[INITIAL_CAPACITY];
+    private long[] employeeIds = new long[INITIAL_CAPACITY];
+    private long[] shareDataIds = new long[INITIAL_CAPACITY];
+    /**
+     * Prices in minor units, see Money.
+     */
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private long[] volumes = new long[INITIAL_CAPACITY];
+
+    /**
+     * Loads the saved purchases before the application starts taking requests, so no insert can be missed or counted
+     * twice.
+     */
+    @PostConstruct
+    void load() {
+        if (!enabled) {
+            return;
+        }
+        if (parallelism > 0) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.query(LOAD_PURCHASES, resultSet -> {
+                append(resultSet.getLong(1), resultSet.getObject(2, LocalDate.class), resultSet.getLong(3),
+                        resultSet.getLong(4), resultSet.getLong(5), resultSet.getLong(6));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    void stopPool() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs before DataVersion moves on, so no response of the new version is built from the old rows.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    void stocksSaved(StocksSavedEvent event) {
+        if (enabled) {
+            add(event.getStocks());
+        }
+    }
+
+    void add(List<Stock> stocks) {
+        lock.writeLock().lock();
+        try {
+            for (Stock stock : stocks) {
+                append(stock.getId(), stock.getDate(), stock.getEmployee().getId(), stock.getShareData().getId(),
+                        stock.getPricePerShare(), stock.getVolumeAcquired());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Sums the cost of the purchases in minor units, grouped by the month they were made in. Above
+     * investment.analytics.parallel-threshold rows the scan is split over the fork/join pool.
+     * @param employeeId only the purchases of this employee, null for all of them.
+     * @return totals of the months that had purchases.
+     */
+    public List<MonthlyTotal> sumCostGroupedByMonth(Long employeeId) {
+        return sumCostGroupedByMonth(employeeId, size() >= parallelThreshold ? pool : null);
+    }
+
+    /**
+     * @param pool pool to split the scan over, null to scan on the calling thread.
+     */
+    List<MonthlyTotal> sumCostGroupedByMonth(Long employeeId, ForkJoinPool pool) {
+        lock.readLock().lock();
+        try {
+            if (pool == null) {
+                return new MonthlyCostTask(months, employeeIds, prices, volumes, employeeId, 0, size, size)
+                        .scan().toMonthlyTotals();
+            }
+            int chunkSize = Math.max(MIN_CHUNK_SIZE, size / (pool.getParallelism() * CHUNKS_PER_THREAD));
+            return pool.invoke(new MonthlyCostTask(months, employeeIds, prices, volumes, employeeId, 0, size,
+                    chunkSize)).toMonthlyTotals();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the purchases ordered by their date, purchases of the same day stay in the order they were added.
+     * @param employeeId only the purchases of this employee, null for all of them.
+     * @param month only the purchases of this month, null for all of them.
+     * @return the purchases, with the share data read from the catalog in one query.
+     */
+    public List<MonthlyStockDTO> findStocks(Long employeeId, Month month) {
+        boolean allEmployees = employeeId == null;
+        long employee = allEmployees ? 0 : employeeId;
+        int monthValue = month == null ? 0 : month.getValue();
+        int[] foundDays;
+        long[] foundEmployeeIds;
+        long[] foundShareDataIds;
+        long[] foundPrices;
+        long[] foundVolumes;
+        lock.readLock().lock();
+        try {
+            // Day in the upper half and row in the lower half, so one primitive sort orders by day and then by row.
+            long[] found = new long[16];
+            int count = 0;
+            for (int i = 0; i < size; i++) {
+                if ((allEmployees || employeeIds[i] == employee) && (monthValue == 0 || months[i] == monthValue)) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = (long) epochDays[i] << 32 | i;
+                }
+            }
+            Arrays.sort(found, 0, count);
+            foundDays = new int[count];
+            foundEmployeeIds = new long[count];
+            foundShareDataIds = new long[count];
+            foundPrices = new long[count];
+            foundVolumes = new long[count];
+            for (int j = 0; j < count; j++) {
+                int i = (int) found[j];
+                foundDays[j] = epochDays[i];
+                foundEmployeeIds[j] = employeeIds[i];
+                foundShareDataIds[j] = shareDataIds[i];
+                foundPrices[j] = prices[i];
+                foundVolumes[j] = volumes[i];
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Map<Long, ShareData> shareData = shareDataRepository.findAllById(
+                        Arrays.stream(foundShareDataIds).boxed().collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(ShareData::getId, Function.identity()));
+        List<MonthlyStockDTO> stocks = new ArrayList<>(foundDays.length);
+        for (int j = 0; j < foundDays.length; j++) {
+            stocks.add(new MonthlyStockDTO(shareData.get(foundShareDataIds[j]), LocalDate.ofEpochDay(foundDays[j]),
+                    foundPrices[j], foundVolumes[j], new Employee(foundEmployeeIds[j])));
+        }
+        return stocks;
+    }
+
+    private void append(long stockId, LocalDate date, long employeeId, long shareDataId, long price, long volume) {
+        if (size == stockIds.length) {
+            grow();
+        }
+        stockIds[size] = stockId;
+        epochDays[size] = (int) date.toEpochDay();
+        months[size] = (byte) date.getMonthValue();
+        employeeIds[size] = employeeId;
+        shareDataIds[size] = shareDataId;
+        prices[size] = price;
+        volumes[size] = volume;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = stockIds.length * 2;
+        stockIds = Arrays.copyOf(stockIds, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        months = Arrays.copyOf(months, capacity);
+        employeeIds = Arrays.copyOf(employeeIds, capacity);
+        shareDataIds = Arrays.copyOf(shareDataIds, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        volumes = Arrays.copyOf(volumes, capacity);
+    }
+}
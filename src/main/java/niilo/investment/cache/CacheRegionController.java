@@ -0,0 +1,23 @@
+package niilo.investment.cache;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@CrossOrigin
+@RestController
+@RequestMapping(path = "/api")
+public class CacheRegionController {
+
+    @Autowired
+    CacheRegions cacheRegions;
+
+    /**
+     * Request the hits, misses, puts and size of the Hibernate cache regions.
+     */
+    @GetMapping(path = "/admin/cache/regions")
+    public List<RegionStatistics> getCacheRegionStatistics() {
+        return cacheRegions.statistics();
+    }
+}
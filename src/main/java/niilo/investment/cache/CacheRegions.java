@@ -0,0 +1,48 @@
+package niilo.investment.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the statistics of the Hibernate second-level and query cache regions.
+ */
+@Component
+public class CacheRegions {
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Hits, misses, puts and size of every region, ordered by region name.
+     * @throws ResponseStatusException when Hibernate does not collect statistics, which costs on every query and is
+     * turned on with investment.cache.statistics.enabled.
+     */
+    public List<RegionStatistics> statistics() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND,
+                    "Cache statistics are off, set investment.cache.statistics.enabled=true");
+        }
+        String[] regionNames = statistics.getSecondLevelCacheRegionNames().clone();
+        Arrays.sort(regionNames);
+        List<RegionStatistics> regions = new ArrayList<>();
+        for (String regionName : regionNames) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(regionName);
+            if (region != null) {
+                regions.add(new RegionStatistics(regionName, region.getHitCount(), region.getMissCount(),
+                        region.getPutCount(), region.getElementCountInMemory()));
+            }
+        }
+        return regions;
+    }
+}
@@ -0,0 +1,15 @@
+package niilo.investment.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RegionStatistics {
+
+    private String region;
+    private long hits;
+    private long misses;
+    private long puts;
+    private long size;
+}
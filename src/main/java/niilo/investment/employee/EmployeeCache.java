@@ -0,0 +1,105 @@
+package niilo.investment.employee;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers which employee ids exist, so ingest and reports go to the database only on a miss. Only known
+ * employees are kept, an id that was missing is looked up again next time, so new employees are found right away.
+ * Entries expire after a while and the least recently used ones are dropped when the cache is full.
+ */
+@Component
+public class EmployeeCache {
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Value("${investment.cache.employees.max-size:10000}")
+    private int maxSize;
+
+    @Value("${investment.cache.employees.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private final Map<Long, Long> expiryById = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Tells if there is an employee with the id.
+     */
+    public boolean exists(Long employeeId) {
+        return employeeId != null && !findExisting(List.of(employeeId)).isEmpty();
+    }
+
+    /**
+     * Finds which of the ids belong to an employee, the ids that are not cached are looked up with one query.
+     * @param employeeIds ids to look for.
+     * @return ids that belong to an employee.
+     */
+    public Set<Long> findExisting(Collection<Long> employeeIds) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> notCached = new ArrayList<>();
+        long now = System.nanoTime();
+        synchronized (expiryById) {
+            for (Long employeeId : employeeIds) {
+                Long expiry = expiryById.get(employeeId);
+                if (expiry != null && expiry - now > 0) {
+                    existing.add(employeeId);
+                } else {
+                    notCached.add(employeeId);
+                }
+            }
+        }
+        hits.add(existing.size());
+        misses.add(notCached.size());
+        if (!notCached.isEmpty()) {
+            List<Long> found = employeeRepository.findExistingIds(notCached);
+            existing.addAll(found);
+            found.forEach(this::put);
+        }
+        return existing;
+    }
+
+    /**
+     * Remembers that the employee exists.
+     */
+    public void put(Long employeeId) {
+        long expiry = System.nanoTime() + TimeUnit.SECONDS.toNanos(ttlSeconds);
+        synchronized (expiryById) {
+            expiryById.put(employeeId, expiry);
+        }
+    }
+
+    /**
+     * Forgets the employee, the next check goes to the database.
+     */
+    public void evict(Long employeeId) {
+        synchronized (expiryById) {
+            expiryById.remove(employeeId);
+        }
+    }
+
+    public EmployeeCacheStatistics statistics() {
+        int size;
+        synchronized (expiryById) {
+            size = expiryById.size();
+        }
+        return new EmployeeCacheStatistics(hits.sum(), misses.sum(), size, maxSize);
+    }
+}
@@ -0,0 +1,21 @@
+package niilo.investment.employee;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin
+@RestController
+@RequestMapping(path = "/api")
+public class EmployeeCacheController {
+
+    @Autowired
+    EmployeeCache employeeCache;
+
+    /**
+     * Request the hits, misses and size of the employee cache.
+     */
+    @GetMapping(path = "/admin/cache/employees")
+    public EmployeeCacheStatistics getEmployeeCacheStatistics() {
+        return employeeCache.statistics();
+    }
+}
@@ -0,0 +1,46 @@
+package niilo.investment.employee;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps the employee cache in line with inserted and removed employees.
+ */
+public class EmployeeCacheListener {
+
+    /**
+     * Lazy, the listener is created while the entity manager factory that the cache depends on is being built.
+     * Optional, JPA test slices do not have the cache.
+     */
+    @Lazy
+    @Autowired
+    private ObjectProvider<EmployeeCache> employeeCache;
+
+    /**
+     * The employee is cached only once it has been committed, a rolled back employee is never known to the cache.
+     */
+    @PostPersist
+    void employeeInserted(Employee employee) {
+        Long employeeId = employee.getId();
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            employeeCache.ifAvailable(cache -> cache.put(employeeId));
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                employeeCache.ifAvailable(cache -> cache.put(employeeId));
+            }
+        });
+    }
+
+    @PostRemove
+    void employeeRemoved(Employee employee) {
+        employeeCache.ifAvailable(cache -> cache.evict(employee.getId()));
+    }
+}
@@ -0,0 +1,14 @@
+package niilo.investment.employee;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class EmployeeCacheStatistics {
+
+    private long hits;
+    private long misses;
+    private int size;
+    private int maxSize;
+}
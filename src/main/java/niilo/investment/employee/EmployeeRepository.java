@@ -1,6 +1,17 @@
 package niilo.investment.employee;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface EmployeeRepository extends JpaRepository<Employee,Long> {
+
+    /**
+     * Which of the given ids belong to an employee.
+     */
+    @Query("select e.id from Employee e where e.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,18 @@
+package niilo.investment.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class ChunkResult {
+
+    private int chunk;
+    private int firstStockNumber;
+    private int lastStockNumber;
+    private int savedStocks;
+    /**
+     * Why the chunk was not saved, null if it was. Stock numbers in it are counted from the start of the chunk.
+     */
+    private String error;
+}
@@ -0,0 +1,14 @@
+package niilo.investment.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class CsvImportResult {
+
+    private int importedStocks;
+    private List<RejectedStock> rejectedStocks;
+}
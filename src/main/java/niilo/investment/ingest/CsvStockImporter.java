@@ -0,0 +1,249 @@
+package niilo.investment.ingest;
+
+import niilo.investment.analytics.PurchaseColumnStore;
+import niilo.investment.employee.Employee;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.stock.PurchaseTotal;
+import niilo.investment.stock.Stock;
+import niilo.investment.stock.StocksSavedEvent;
+import niilo.investment.validators.IsinCode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Imports purchases from CSV with H2's own CSV reader. The file has a header line with the columns
+ * id, employee_id, company_name, share_name, share_isin_code, country, field_of_economic_activity,
+ * price_per_share, volume_acquired, purchase_date (yyyy-MM-dd).
+ */
+@Component
+public class CsvStockImporter {
+
+    private static final String NUMBER = "'^-?[0-9]{1,18}$'";
+    /**
+     * At most Money.SCALE decimal places, and few enough digits that the price fits in a long of minor units.
+     */
+    private static final String DECIMAL = "'^-?[0-9]{1,14}(\\.[0-9]{1,4})?$'";
+    private static final String DATE = "'^[0-9]{4}-[0-9]{2}-[0-9]{2}$'";
+
+    private static final String CREATE_STAGING_TABLE = """
+            CREATE LOCAL TEMPORARY TABLE IF NOT EXISTS stock_import (
+                line_number INT PRIMARY KEY,
+                id VARCHAR,
+                employee_id VARCHAR,
+                company_name VARCHAR,
+                share_name VARCHAR,
+                share_isin_code VARCHAR,
+                country VARCHAR,
+                field_of_economic_activity VARCHAR,
+                price_per_share VARCHAR,
+                volume_acquired VARCHAR,
+                purchase_date VARCHAR,
+                repeated BOOLEAN DEFAULT FALSE,
+                rejection VARCHAR
+            ) ON COMMIT DROP TRANSACTIONAL""";
+
+    private static final String LOAD_CSV = """
+            INSERT INTO stock_import (line_number, id, employee_id, company_name, share_name, share_isin_code,
+                country, field_of_economic_activity, price_per_share, volume_acquired, purchase_date)
+            SELECT ROWNUM(), id, employee_id, company_name, share_name, share_isin_code,
+                country, field_of_economic_activity, price_per_share, volume_acquired, purchase_date
+            FROM CSVREAD('%s', NULL, 'charset=UTF-8')""";
+
+    private static final String MARK_REPEATED_IDS = """
+            UPDATE stock_import SET repeated = TRUE WHERE line_number IN (
+                SELECT line_number FROM (
+                    SELECT line_number, ROW_NUMBER() OVER (PARTITION BY id ORDER BY line_number) AS occurrence
+                    FROM stock_import) occurrences
+                WHERE occurrence > 1)""";
+
+    /**
+     * Same checks in the same order as StockValidator, every row gets the reason of its first failing check.
+     * A date has to be a day of the calendar too: the day is counted from the first of its month and has to stay in
+     * that month, so 2022-02-30 is rejected here instead of failing the cast in MERGE_STOCKS.
+     */
+    private static final String VALIDATE = """
+            UPDATE stock_import i SET rejection = CASE
+                WHEN TRIM(i.id) = '' OR i.id IS NULL THEN 'Stock ID is missing'
+                WHEN NOT REGEXP_LIKE(i.id, %1$s) THEN 'Stock ID is not a number'
+                WHEN CAST(i.id AS BIGINT) < 1 THEN 'Stock ID can not be smaller than 1'
+                WHEN EXISTS (SELECT 1 FROM stocks s WHERE s.id = CAST(i.id AS BIGINT))
+                    THEN 'Purchase with this ID has been done already'
+                WHEN i.repeated THEN 'Stock ID is repeated in the batch'
+                WHEN TRIM(i.price_per_share) = '' OR i.price_per_share IS NULL THEN 'Stock price per share is missing'
+                WHEN NOT REGEXP_LIKE(i.price_per_share, %2$s) THEN 'Stock price per share is not a number'
+                WHEN CAST(i.price_per_share AS NUMERIC(18, 4)) <= 0
+                    THEN 'Stock price per share has to be bigger than zero'
+                WHEN TRIM(i.volume_acquired) = '' OR i.volume_acquired IS NULL THEN 'Stock volume acquired is missing'
+                WHEN NOT REGEXP_LIKE(i.volume_acquired, %1$s) THEN 'Stock volume acquired is not a number'
+                WHEN CAST(i.volume_acquired AS BIGINT) < 1 THEN 'Stock volume acquired has to be bigger than zero'
+                WHEN CAST(i.price_per_share AS NUMERIC(18, 4)) * CAST(i.volume_acquired AS NUMERIC(19))
+                    > 922337203685477.5807 THEN 'Stock total price is too large'
+                WHEN TRIM(i.purchase_date) = '' OR i.purchase_date IS NULL THEN 'Stock date is missing'
+                WHEN NOT REGEXP_LIKE(i.purchase_date, %3$s) THEN 'Stock date is not a yyyy-MM-dd date'
+                WHEN CAST(SUBSTRING(i.purchase_date, 6, 2) AS INT) NOT BETWEEN 1 AND 12
+                    THEN 'Stock date is not a yyyy-MM-dd date'
+                WHEN EXTRACT(MONTH FROM DATEADD(DAY, CAST(SUBSTRING(i.purchase_date, 9, 2) AS INT) - 1,
+                        CAST(SUBSTRING(i.purchase_date, 1, 8) || '01' AS DATE)))
+                    <> CAST(SUBSTRING(i.purchase_date, 6, 2) AS INT) THEN 'Stock date is not a yyyy-MM-dd date'
+                WHEN TRIM(i.employee_id) = '' OR i.employee_id IS NULL THEN 'Employee ID is missing'
+                WHEN NOT REGEXP_LIKE(i.employee_id, %1$s) THEN 'Employee ID is not a number'
+                WHEN NOT EXISTS (SELECT 1 FROM employee e WHERE e.id = CAST(i.employee_id AS BIGINT))
+                    THEN 'Employee not in the database'
+                WHEN TRIM(i.company_name) = '' OR i.company_name IS NULL THEN 'Share data company name is missing'
+                WHEN TRIM(i.share_name) = '' OR i.share_name IS NULL THEN 'Share data share name is missing'
+                WHEN i.share_isin_code IS NULL THEN 'Share data ISIN code is missing'
+                WHEN NOT REGEXP_LIKE(i.share_isin_code, '^[A-Z]{2}[A-Z0-9]{9}[0-9]$')
+                    THEN 'Share data ISIN code is not matching with standard'
+                WHEN TRIM(i.country) = '' OR i.country IS NULL THEN 'Share data country is missing'
+                WHEN TRIM(i.field_of_economic_activity) = '' OR i.field_of_economic_activity IS NULL
+                    THEN 'Share data field of economic activity is missing'
+            END""".formatted(NUMBER, DECIMAL, DATE);
+
+    private static final String FIND_ISIN_CODES = """
+            SELECT DISTINCT share_isin_code FROM stock_import WHERE rejection IS NULL""";
+
+    private static final String REJECT_WRONG_CHECK_DIGIT = """
+            UPDATE stock_import SET rejection = 'Share data ISIN code check digit is wrong'
+            WHERE rejection IS NULL AND share_isin_code = ?""";
+
+    /**
+     * Adds the securities missing from the catalog with the details of the first row of their ISIN code. The known
+     * ones are left as they are, see ShareDataCatalog.
+     */
+    private static final String MERGE_SHARE_DATA = """
+            MERGE INTO share_data s
+            USING (SELECT * FROM (
+                    SELECT company_name, share_name, share_isin_code, country, field_of_economic_activity,
+                        ROW_NUMBER() OVER (PARTITION BY share_isin_code ORDER BY line_number) AS occurrence
+                    FROM stock_import WHERE rejection IS NULL) occurrences
+                WHERE occurrence = 1) v
+            ON s.share_isin_code = v.share_isin_code
+            WHEN NOT MATCHED THEN INSERT (id, company_name, share_name, share_isin_code, country,
+                field_of_economic_activity)
+            VALUES (NEXT VALUE FOR share_data_seq, v.company_name, v.share_name, v.share_isin_code, v.country,
+                v.field_of_economic_activity)""";
+
+    /**
+     * Prices are stored in minor units, see Money.
+     */
+    private static final String MERGE_STOCKS = """
+            INSERT INTO stocks (id, share_data_id, price_per_share, volume_acquired, date, purchase_month, employee_id)
+            SELECT CAST(i.id AS BIGINT), s.id, CAST(CAST(i.price_per_share AS NUMERIC(18, 4)) * 10000 AS BIGINT),
+                CAST(i.volume_acquired AS BIGINT), CAST(i.purchase_date AS DATE),
+                EXTRACT(MONTH FROM CAST(i.purchase_date AS DATE)), CAST(i.employee_id AS BIGINT)
+            FROM stock_import i JOIN share_data s ON s.share_isin_code = i.share_isin_code
+            WHERE i.rejection IS NULL""";
+
+    /**
+     * The imported stocks added up by employee and month of a year, as few rows as the import touches totals.
+     */
+    private static final String SUM_IMPORTED = """
+            SELECT s.employee_id, EXTRACT(YEAR FROM s.date), s.purchase_month,
+                SUM(s.price_per_share * s.volume_acquired), COUNT(*)
+            FROM stocks s JOIN stock_import i ON s.id = CAST(i.id AS BIGINT)
+            WHERE i.rejection IS NULL
+            GROUP BY s.employee_id, EXTRACT(YEAR FROM s.date), s.purchase_month""";
+
+    /**
+     * Only read when the column store is enabled, it is the one listener that keeps every stock.
+     */
+    private static final String FIND_IMPORTED = """
+            SELECT s.id, s.share_data_id, s.price_per_share, s.volume_acquired, s.date, s.employee_id
+            FROM stocks s JOIN stock_import i ON s.id = CAST(i.id AS BIGINT)
+            WHERE i.rejection IS NULL""";
+
+    private static final String FIND_REJECTED = """
+            SELECT line_number, rejection FROM stock_import WHERE rejection IS NOT NULL ORDER BY line_number""";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private PurchaseColumnStore purchaseColumnStore;
+
+    /**
+     * Loads the CSV into a staging table, validates all of its rows at once and saves the valid ones.
+     * New catalog ids are taken from share_data_seq one value at a time, which never overlaps with the blocks
+     * Hibernate's pooled generator hands out.
+     * @param inputStream CSV of purchases.
+     * @return how many stocks were saved and which stocks were rejected, counted from the first line after the
+     * header.
+     */
+    @Transactional
+    public CsvImportResult importCsv(InputStream inputStream) throws IOException {
+        Path csvFile = Files.createTempFile("stock-import", ".csv");
+        try {
+            Files.copy(inputStream, csvFile, StandardCopyOption.REPLACE_EXISTING);
+            jdbcTemplate.execute(CREATE_STAGING_TABLE);
+            jdbcTemplate.update("DELETE FROM stock_import");
+            jdbcTemplate.update(LOAD_CSV.formatted(csvFile.toAbsolutePath().toString().replace("'", "''")));
+            jdbcTemplate.update(MARK_REPEATED_IDS);
+            jdbcTemplate.update(VALIDATE);
+            rejectWrongCheckDigits();
+            addMissingShareData();
+            int importedStocks = jdbcTemplate.update(MERGE_STOCKS);
+            eventPublisher.publishEvent(new StocksSavedEvent(findImportedForColumnStore(),
+                    jdbcTemplate.query(SUM_IMPORTED, (resultSet, rowNumber) -> new PurchaseTotal(resultSet.getLong(1),
+                            resultSet.getInt(2), resultSet.getInt(3), resultSet.getLong(4), resultSet.getLong(5)))));
+            List<RejectedStock> rejectedStocks = jdbcTemplate.query(FIND_REJECTED,
+                    (resultSet, rowNumber) -> new RejectedStock(resultSet.getInt(1), resultSet.getString(2)));
+            return new CsvImportResult(importedStocks, rejectedStocks);
+        } catch (DataAccessException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "CSV could not be imported: " + exception.getMostSpecificCause().getMessage());
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    private List<Stock> findImportedForColumnStore() {
+        if (!purchaseColumnStore.isEnabled()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(FIND_IMPORTED, (resultSet, rowNumber) -> new Stock(resultSet.getLong(1),
+                new ShareData(resultSet.getLong(2), null, null, null, null, null), resultSet.getLong(3),
+                resultSet.getLong(4), resultSet.getObject(5, LocalDate.class), new Employee(resultSet.getLong(6))));
+    }
+
+    /**
+     * An import that adds the same new ISIN code at the same time makes the insert fail on uk_share_data_isin once
+     * it commits. Only the failed statement is rolled back, and the second try finds the security in the catalog.
+     */
+    private void addMissingShareData() {
+        try {
+            jdbcTemplate.update(MERGE_SHARE_DATA);
+        } catch (DataIntegrityViolationException exception) {
+            jdbcTemplate.update(MERGE_SHARE_DATA);
+        }
+    }
+
+    /**
+     * The ISIN check digit is computed in Java, once per distinct code of the rows that passed the other checks.
+     */
+    private void rejectWrongCheckDigits() {
+        List<String> wrongIsinCodes = jdbcTemplate.queryForList(FIND_ISIN_CODES, String.class).stream()
+                .filter(isinCode -> !IsinCode.hasValidCheckDigit(isinCode)).toList();
+        if (!wrongIsinCodes.isEmpty()) {
+            jdbcTemplate.batchUpdate(REJECT_WRONG_CHECK_DIGIT, wrongIsinCodes, wrongIsinCodes.size(),
+                    (statement, isinCode) -> statement.setString(1, isinCode));
+        }
+    }
+}
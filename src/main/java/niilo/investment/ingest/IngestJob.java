@@ -0,0 +1,62 @@
+package niilo.investment.ingest;
+
+import lombok.Getter;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Progress of an asynchronous ingest. Only the worker thread writes it, request threads read it.
+ */
+@Getter
+public class IngestJob {
+
+    static final int MAX_REPORTED_ERRORS = 10;
+
+    private final String id;
+    private final int totalStocks;
+    private volatile IngestJobStatus status = IngestJobStatus.QUEUED;
+    private volatile int processedStocks;
+    private volatile int savedStocks;
+    private final List<String> errors = new CopyOnWriteArrayList<>();
+
+    public IngestJob(String id, int totalStocks) {
+        this.id = id;
+        this.totalStocks = totalStocks;
+    }
+
+    void start() {
+        status = IngestJobStatus.RUNNING;
+    }
+
+    /**
+     * Counts a processed chunk, keeping only the first errors.
+     */
+    void addChunkResult(ChunkResult chunkResult) {
+        processedStocks = chunkResult.getLastStockNumber();
+        savedStocks += chunkResult.getSavedStocks();
+        if (chunkResult.getError() != null) {
+            addError("Stocks " + chunkResult.getFirstStockNumber() + "-" + chunkResult.getLastStockNumber()
+                    + " not saved: " + chunkResult.getError());
+        }
+    }
+
+    void finish() {
+        status = IngestJobStatus.DONE;
+    }
+
+    void fail(String reason) {
+        addError(reason);
+        status = IngestJobStatus.FAILED;
+    }
+
+    boolean isFinished() {
+        return status == IngestJobStatus.DONE || status == IngestJobStatus.FAILED;
+    }
+
+    private void addError(String error) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+    }
+}
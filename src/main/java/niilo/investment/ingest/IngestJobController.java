@@ -0,0 +1,35 @@
+package niilo.investment.ingest;
+
+import niilo.investment.stock.Stock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+@CrossOrigin
+@RestController
+@RequestMapping(path = "/api")
+public class IngestJobController {
+
+    @Autowired
+    IngestJobService ingestJobService;
+
+    /**
+     * Accept the stocks to be validated and saved in the background, answers right away with the job.
+     */
+    @PostMapping(path = "/stocks/addall/async")
+    public ResponseEntity<IngestJob> addStocksAsync(@RequestBody List<Stock> addedStocks) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(ingestJobService.submit(addedStocks));
+    }
+    /**
+     * Request the progress of an ingest job.
+     */
+    @GetMapping(path = "/jobs/{id}")
+    public IngestJob getJob(@PathVariable String id) {
+        return ingestJobService.findJob(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Job not found"));
+    }
+}
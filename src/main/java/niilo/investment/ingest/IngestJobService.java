@@ -0,0 +1,151 @@
+package niilo.investment.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import niilo.investment.stock.Stock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs large ingests in the background on a bounded pool, so request threads are not held while they are saved.
+ * Waiting payloads are spooled to JSON files in the temp directory, so memory does not grow with the queue. At most
+ * investment.ingest.queue-capacity payloads wait on disk, and each running job holds one chunk of
+ * StockStreamImporter.CHUNK_SIZE stocks in memory.
+ */
+@Component
+public class IngestJobService {
+
+    static final int MAX_RETAINED_JOBS = 1000;
+
+    @Autowired
+    private StockStreamImporter stockStreamImporter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${investment.ingest.threads:2}")
+    private int threads;
+
+    @Value("${investment.ingest.queue-capacity:20}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    private final Map<String, IngestJob> jobs = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String> jobOrder = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    void startExecutor() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "ingest-" + threadNumber.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void stopExecutor() {
+        executor.shutdown();
+    }
+
+    /**
+     * Queues the stocks to be validated and saved chunk by chunk. The job is known before it is queued, so it can be
+     * found even when it starts running before this returns.
+     * @param stocks stocks to be saved.
+     * @return the queued job, its progress can be followed by its id.
+     */
+    public IngestJob submit(List<Stock> stocks) {
+        IngestJob job = new IngestJob(UUID.randomUUID().toString(), stocks.size());
+        Path payload = spool(stocks);
+        jobs.put(job.getId(), job);
+        jobOrder.add(job.getId());
+        try {
+            executor.execute(() -> run(job, payload));
+        } catch (RejectedExecutionException exception) {
+            jobs.remove(job.getId());
+            jobOrder.remove(job.getId());
+            delete(payload);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many ingest jobs are waiting");
+        }
+        forgetOldJobs();
+        return job;
+    }
+
+    /**
+     * Finds a job that has not been forgotten yet.
+     */
+    public Optional<IngestJob> findJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Writes the stocks to a temp file, the queued job only keeps its path.
+     */
+    private Path spool(List<Stock> stocks) {
+        try {
+            Path payload = Files.createTempFile("ingest-job", ".json");
+            objectMapper.writeValue(payload.toFile(), stocks);
+            return payload;
+        } catch (IOException exception) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Ingest job could not be queued: " + exception.getMessage());
+        }
+    }
+
+    /**
+     * Reads the spooled stocks back chunk by chunk and deletes them once the job is over.
+     */
+    private void run(IngestJob job, Path payload) {
+        job.start();
+        try (InputStream inputStream = Files.newInputStream(payload)) {
+            stockStreamImporter.importStocks(inputStream, job::addChunkResult);
+            job.finish();
+        } catch (IOException | RuntimeException exception) {
+            job.fail("Ingest stopped: " + exception.getMessage());
+        } finally {
+            delete(payload);
+        }
+    }
+
+    private void delete(Path payload) {
+        try {
+            Files.deleteIfExists(payload);
+        } catch (IOException exception) {
+            payload.toFile().deleteOnExit();
+        }
+    }
+
+    /**
+     * Keeps at most MAX_RETAINED_JOBS jobs, dropping the oldest finished ones first.
+     */
+    private void forgetOldJobs() {
+        Iterator<String> oldestFirst = jobOrder.iterator();
+        while (jobs.size() > MAX_RETAINED_JOBS && oldestFirst.hasNext()) {
+            String id = oldestFirst.next();
+            IngestJob job = jobs.get(id);
+            if (job == null || job.isFinished()) {
+                jobs.remove(id);
+                oldestFirst.remove();
+            }
+        }
+    }
+}
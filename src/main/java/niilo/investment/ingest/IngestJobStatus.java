@@ -0,0 +1,8 @@
+package niilo.investment.ingest;
+
+public enum IngestJobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
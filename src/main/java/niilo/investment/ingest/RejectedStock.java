@@ -0,0 +1,12 @@
+package niilo.investment.ingest;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class RejectedStock {
+
+    private int stockNumber;
+    private String reason;
+}
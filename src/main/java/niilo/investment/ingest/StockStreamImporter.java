@@ -0,0 +1,100 @@
+package niilo.investment.ingest;
+
+import com.fasterxml.jackson.core.JsonLocation;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import niilo.investment.service.Service;
+import niilo.investment.stock.Stock;
+import niilo.investment.validators.StockValidator;
+import niilo.investment.validators.ValidationError;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+@Component
+public class StockStreamImporter {
+
+    static final int CHUNK_SIZE = 1000;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StockValidator stockValidator;
+
+    @Autowired
+    private Service service;
+
+    /**
+     * Reads stocks one by one from a JSON array or from newline delimited JSON, then validates and saves them in
+     * chunks. Every chunk is saved or rejected as a whole, so only one chunk is held in memory at a time.
+     * @param inputStream stocks to be imported.
+     * @return result of every chunk, reading stops at the first stock that is not valid JSON or not a JSON object.
+     */
+    public List<ChunkResult> importStocks(InputStream inputStream) throws IOException {
+        List<ChunkResult> results = new ArrayList<>();
+        importStocks(inputStream, results::add);
+        return results;
+    }
+
+    /**
+     * Same as importStocks, hands the result of every chunk over as soon as the chunk is done.
+     * @param results takes the result of every chunk.
+     */
+    public void importStocks(InputStream inputStream, Consumer<ChunkResult> results) throws IOException {
+        List<Stock> chunk = new ArrayList<>(CHUNK_SIZE);
+        int chunkNumber = 1;
+        int firstStockNumber = 1;
+        try (JsonParser parser = objectMapper.createParser(inputStream)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            while (token == JsonToken.START_OBJECT) {
+                chunk.add(objectMapper.readValue(parser, Stock.class));
+                if (chunk.size() == CHUNK_SIZE) {
+                    results.accept(importChunk(chunkNumber++, firstStockNumber, chunk));
+                    firstStockNumber += chunk.size();
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+                token = parser.nextToken();
+            }
+            if (token != null && token != JsonToken.END_ARRAY) {
+                JsonLocation location = parser.currentTokenLocation();
+                int brokenStockNumber = firstStockNumber + chunk.size();
+                results.accept(new ChunkResult(chunkNumber, firstStockNumber, brokenStockNumber, 0,
+                        "Stock nr " + brokenStockNumber + " is not a JSON object, found " + parser.getText()
+                                + " at line " + location.getLineNr() + ", column " + location.getColumnNr()));
+                return;
+            }
+        } catch (JsonProcessingException exception) {
+            int brokenStockNumber = firstStockNumber + chunk.size();
+            results.accept(new ChunkResult(chunkNumber, firstStockNumber, brokenStockNumber, 0,
+                    "Stock nr " + brokenStockNumber + " could not be read: " + exception.getOriginalMessage()));
+            return;
+        }
+        if (!chunk.isEmpty()) {
+            results.accept(importChunk(chunkNumber, firstStockNumber, chunk));
+        }
+    }
+
+    /**
+     * Validates a chunk of stocks and saves it if all of them are valid.
+     */
+    ChunkResult importChunk(int chunkNumber, int firstStockNumber, List<Stock> chunk) {
+        int lastStockNumber = firstStockNumber + chunk.size() - 1;
+        List<ValidationError> errors = stockValidator.findErrors(chunk);
+        if (!errors.isEmpty()) {
+            return new ChunkResult(chunkNumber, firstStockNumber, lastStockNumber, 0, ValidationError.describe(errors));
+        }
+        service.addStocksToRepository(chunk);
+        return new ChunkResult(chunkNumber, firstStockNumber, lastStockNumber, chunk.size(), null);
+    }
+}
@@ -0,0 +1,44 @@
+package niilo.investment.money;
+
+import java.math.BigDecimal;
+
+/**
+ * Money is kept as a long of minor units, ten thousandths of the currency unit, so that sums are exact and no
+ * objects are created while adding them up. Decimals are only used when reading and writing JSON.
+ */
+public final class Money {
+
+    /**
+     * Number of decimal places kept.
+     */
+    public static final int SCALE = 4;
+
+    private Money() {
+    }
+
+    /**
+     * Cost of buying the volume at the price.
+     * @throws ArithmeticException if the cost does not fit in a long.
+     */
+    public static long multiply(long amount, long volume) {
+        return Math.multiplyExact(amount, volume);
+    }
+
+    /**
+     * @throws ArithmeticException if the sum does not fit in a long.
+     */
+    public static long add(long amount, long otherAmount) {
+        return Math.addExact(amount, otherAmount);
+    }
+
+    public static BigDecimal toDecimal(long amount) {
+        return BigDecimal.valueOf(amount, SCALE);
+    }
+
+    /**
+     * @throws ArithmeticException if the decimal has more than SCALE decimal places or does not fit in a long.
+     */
+    public static long fromDecimal(BigDecimal decimal) {
+        return decimal.movePointRight(SCALE).longValueExact();
+    }
+}
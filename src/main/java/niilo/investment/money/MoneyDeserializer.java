@@ -0,0 +1,34 @@
+package niilo.investment.money;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+/**
+ * Reads a decimal number into minor units. Amounts with more than Money.SCALE decimal places are refused instead of
+ * being rounded.
+ */
+public class MoneyDeserializer extends StdDeserializer<Long> {
+
+    public MoneyDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.hasToken(JsonToken.VALUE_NUMBER_INT) && !parser.hasToken(JsonToken.VALUE_NUMBER_FLOAT)) {
+            return (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+        BigDecimal decimal = parser.getDecimalValue();
+        try {
+            return Money.fromDecimal(decimal);
+        } catch (ArithmeticException exception) {
+            return (Long) context.handleWeirdNumberValue(Long.class, decimal,
+                    "has more than %d decimal places or is too big", Money.SCALE);
+        }
+    }
+}
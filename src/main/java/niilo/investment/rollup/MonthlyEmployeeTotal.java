@@ -0,0 +1,31 @@
+package niilo.investment.rollup;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.EmbeddedId;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Cost and number of the purchases of an employee in a month of a year, kept up to date with every insert so the
+ * monthly reports do not have to read the stocks.
+ */
+@Entity
+@Table(name = "monthly_employee_totals")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlyEmployeeTotal {
+
+    @EmbeddedId
+    private MonthlyEmployeeTotalId id;
+    /**
+     * Cost in minor units, see Money.
+     */
+    @Column(name = "total_cost")
+    private Long totalCost;
+    @Column(name = "purchase_count")
+    private Long purchaseCount;
+}
@@ -0,0 +1,23 @@
+package niilo.investment.rollup;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlyEmployeeTotalId implements Serializable {
+
+    @Column(name = "employee_id")
+    private Long employeeId;
+    @Column(name = "purchase_year")
+    private Integer purchaseYear;
+    @Column(name = "purchase_month")
+    private Integer purchaseMonth;
+}
@@ -0,0 +1,82 @@
+package niilo.investment.rollup;
+
+import jakarta.persistence.QueryHint;
+import niilo.investment.statistics.EmployeeMonthlyTotal;
+import niilo.investment.statistics.EmployeeSpending;
+import niilo.investment.statistics.MonthlyTotal;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface MonthlyEmployeeTotalRepository extends JpaRepository<MonthlyEmployeeTotal, MonthlyEmployeeTotalId> {
+
+    /**
+     * Sums the cost of all the purchases in minor units, grouped by the month of the year they were made in.
+     * Months without purchases are not returned. Cached until the totals change.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = MonthlyTotalsRollup.QUERY_CACHE_REGION)
+    })
+    @Query("select new niilo.investment.statistics.MonthlyTotal(t.id.purchaseMonth, sum(t.totalCost)) "
+            + "from MonthlyEmployeeTotal t group by t.id.purchaseMonth")
+    List<MonthlyTotal> sumCostGroupedByMonth();
+
+    /**
+     * Sums the cost of the purchases of one employee in minor units, grouped by the month of the year they were
+     * made in. Months without purchases are not returned.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = MonthlyTotalsRollup.QUERY_CACHE_REGION)
+    })
+    @Query("select new niilo.investment.statistics.MonthlyTotal(t.id.purchaseMonth, sum(t.totalCost)) "
+            + "from MonthlyEmployeeTotal t where t.id.employeeId = :employeeId group by t.id.purchaseMonth")
+    List<MonthlyTotal> sumCostOfEmployeeGroupedByMonth(@Param("employeeId") Long employeeId);
+
+    /**
+     * Employees that spent the most in the months of the given year between the given ones, the database keeps only
+     * the top rows of the sort. Ties are ordered by employee id.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = MonthlyTotalsRollup.QUERY_CACHE_REGION)
+    })
+    @Query("select new niilo.investment.statistics.EmployeeSpending(t.id.employeeId, sum(t.totalCost)) "
+            + "from MonthlyEmployeeTotal t where t.id.purchaseYear = :year "
+            + "and t.id.purchaseMonth between :firstMonth and :lastMonth "
+            + "group by t.id.employeeId order by sum(t.totalCost) desc, t.id.employeeId")
+    List<EmployeeSpending> findTopSpenders(@Param("year") Integer year, @Param("firstMonth") Integer firstMonth,
+                                           @Param("lastMonth") Integer lastMonth, Pageable pageable);
+
+    /**
+     * Selects the cost of every employee in minor units per month of the year, in the order of the employee id.
+     */
+    String EMPLOYEE_MONTHLY_TOTAL = "select new niilo.investment.statistics.EmployeeMonthlyTotal(e.id, "
+            + "t.id.purchaseMonth, sum(t.totalCost)) from Employee e "
+            + "left join MonthlyEmployeeTotal t on t.id.employeeId = e.id ";
+
+    /**
+     * Streams the monthly costs of all the employees in one pass, has to be consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(EMPLOYEE_MONTHLY_TOTAL + "group by e.id, t.id.purchaseMonth order by e.id, t.id.purchaseMonth")
+    Stream<EmployeeMonthlyTotal> streamCostOfEveryEmployeeGroupedByMonth();
+
+    /**
+     * Streams the monthly costs of the given employees in one pass, ids without an employee are left out. Has to be
+     * consumed inside a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(EMPLOYEE_MONTHLY_TOTAL + "where e.id in :employeeIds "
+            + "group by e.id, t.id.purchaseMonth order by e.id, t.id.purchaseMonth")
+    Stream<EmployeeMonthlyTotal> streamCostOfEmployeesGroupedByMonth(
+            @Param("employeeIds") Collection<Long> employeeIds);
+}
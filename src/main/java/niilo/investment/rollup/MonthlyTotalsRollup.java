@@ -0,0 +1,179 @@
+package niilo.investment.rollup;
+
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import niilo.investment.analytics.MonthlyCostAccumulator;
+import niilo.investment.money.Money;
+import niilo.investment.stock.PurchaseTotal;
+import niilo.investment.stock.StocksSavedEvent;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps monthly_employee_totals in step with stocks.
+ */
+@Component
+public class MonthlyTotalsRollup {
+
+    /**
+     * Query cache region of the report queries on the totals.
+     */
+    public static final String QUERY_CACHE_REGION = "reports";
+    private static final String[] TOTALS_TABLE = {"monthly_employee_totals"};
+
+    private static final String ADD_TO_TOTAL = """
+            MERGE INTO monthly_employee_totals t
+            USING (SELECT CAST(? AS BIGINT) AS employee_id, CAST(? AS INT) AS purchase_year,
+                    CAST(? AS INT) AS purchase_month, CAST(? AS BIGINT) AS total_cost,
+                    CAST(? AS BIGINT) AS purchase_count) v
+            ON t.employee_id = v.employee_id AND t.purchase_year = v.purchase_year
+                AND t.purchase_month = v.purchase_month
+            WHEN MATCHED THEN UPDATE SET total_cost = t.total_cost + v.total_cost,
+                purchase_count = t.purchase_count + v.purchase_count
+            WHEN NOT MATCHED THEN INSERT (employee_id, purchase_year, purchase_month, total_cost, purchase_count)
+            VALUES (v.employee_id, v.purchase_year, v.purchase_month, v.total_cost, v.purchase_count)""";
+
+    /**
+     * Two batches that both add the first purchase of a total would both take the insert branch of ADD_TO_TOTAL,
+     * and the later one would fail on the primary key. Locking the employees first makes the later batch wait for
+     * the earlier one to commit, after which it sees the total and updates it.
+     */
+    private static final String LOCK_EMPLOYEES = "SELECT id FROM employee WHERE id IN (%s) ORDER BY id FOR UPDATE";
+
+    /**
+     * Takes the locks of every batch at once, so no batch commits between the recount reading stocks and writing
+     * the totals.
+     */
+    private static final String LOCK_ALL_EMPLOYEES = "SELECT id FROM employee ORDER BY id FOR UPDATE";
+
+    private static final String FIND_TOTALS = """
+            SELECT employee_id, purchase_year, purchase_month, total_cost FROM monthly_employee_totals""";
+
+    private static final String RECOUNT_TOTALS = """
+            MERGE INTO monthly_employee_totals t
+            USING (SELECT employee_id, EXTRACT(YEAR FROM date) AS purchase_year, purchase_month,
+                    SUM(price_per_share * volume_acquired) AS total_cost, COUNT(*) AS purchase_count
+                FROM stocks GROUP BY employee_id, EXTRACT(YEAR FROM date), purchase_month) v
+            ON t.employee_id = v.employee_id AND t.purchase_year = v.purchase_year
+                AND t.purchase_month = v.purchase_month
+            WHEN MATCHED THEN UPDATE SET total_cost = v.total_cost, purchase_count = v.purchase_count
+            WHEN NOT MATCHED THEN INSERT (employee_id, purchase_year, purchase_month, total_cost, purchase_count)
+            VALUES (v.employee_id, v.purchase_year, v.purchase_month, v.total_cost, v.purchase_count)""";
+
+    private static final String DELETE_EMPTY_TOTALS = """
+            DELETE FROM monthly_employee_totals t WHERE NOT EXISTS (
+                SELECT 1 FROM stocks s WHERE s.employee_id = t.employee_id AND s.purchase_month = t.purchase_month
+                    AND EXTRACT(YEAR FROM s.date) = t.purchase_year)""";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MonthlyCostAccumulator monthlyCostAccumulator;
+
+    @PersistenceUnit
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Adds the saved stocks to the totals inside the transaction that saved them, so the totals are committed or
+     * rolled back together with the stocks. The employees are locked and the totals updated in key order, so
+     * concurrent batches lock the rows in the same order.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    void stocksSaved(StocksSavedEvent event) {
+        List<PurchaseTotal> totals = new ArrayList<>(event.getTotals());
+        totals.sort(Comparator.comparing(PurchaseTotal::getEmployeeId)
+                .thenComparing(PurchaseTotal::getPurchaseYear)
+                .thenComparing(PurchaseTotal::getPurchaseMonth));
+        lockEmployees(totals.stream().map(PurchaseTotal::getEmployeeId).distinct().toList());
+        jdbcTemplate.batchUpdate(ADD_TO_TOTAL, totals, totals.size(), (statement, total) -> {
+            statement.setLong(1, total.getEmployeeId());
+            statement.setInt(2, total.getPurchaseYear());
+            statement.setInt(3, total.getPurchaseMonth());
+            statement.setLong(4, total.getTotalCost());
+            statement.setLong(5, total.getPurchaseCount());
+        });
+    }
+
+    /**
+     * Runs before DataVersion moves on, so a request of the new version does not find the old totals in the cache.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    void totalsCommitted(StocksSavedEvent event) {
+        invalidateCachedTotals();
+    }
+
+    /**
+     * Recounts the totals from stocks in place, the reports keep reading the old totals until it commits. Batches
+     * wait for the rebuild to commit before they add to the totals. The accumulator gets the differences the recount
+     * made, which add up with the costs of the batches in any order.
+     * @return number of totals.
+     */
+    @Transactional
+    public int rebuild() {
+        jdbcTemplate.queryForList(LOCK_ALL_EMPLOYEES, Long.class);
+        Map<MonthlyEmployeeTotalId, Long> before = findTotals();
+        int totals = jdbcTemplate.update(RECOUNT_TOTALS);
+        jdbcTemplate.update(DELETE_EMPTY_TOTALS);
+        Map<MonthlyEmployeeTotalId, Long> differences = findTotals();
+        before.forEach((id, cost) -> differences.merge(id, -cost, Money::add));
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                differences.forEach((id, cost) -> monthlyCostAccumulator.add(id.getEmployeeId(),
+                        YearMonth.of(id.getPurchaseYear(), id.getPurchaseMonth()), cost));
+                invalidateCachedTotals();
+            }
+        });
+        return totals;
+    }
+
+    private Map<MonthlyEmployeeTotalId, Long> findTotals() {
+        Map<MonthlyEmployeeTotalId, Long> totals = new HashMap<>();
+        jdbcTemplate.query(FIND_TOTALS, resultSet -> {
+            totals.put(new MonthlyEmployeeTotalId(resultSet.getLong(1), resultSet.getInt(2), resultSet.getInt(3)),
+                    resultSet.getLong(4));
+        });
+        return totals;
+    }
+
+    private void lockEmployees(List<Long> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(employeeIds.size(), "?"));
+        jdbcTemplate.queryForList(LOCK_EMPLOYEES.formatted(placeholders), Long.class, employeeIds.toArray());
+    }
+
+    /**
+     * The totals are written with plain JDBC, which Hibernate does not see, so the query cache is told about it
+     * after the commit. Cached results that were read before this moment are not used anymore.
+     */
+    private void invalidateCachedTotals() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            sessionFactory.getCache().getTimestampsCache()
+                    .invalidate(TOTALS_TABLE, (SharedSessionContractImplementor) session);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package niilo.investment.rollup;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin
+@RestController
+@RequestMapping(path = "/api")
+public class MonthlyTotalsRollupController {
+
+    @Autowired
+    MonthlyTotalsRollup monthlyTotalsRollup;
+
+    /**
+     * Recount the monthly totals from the stocks, answers with the number of totals.
+     */
+    @PostMapping(path = "/admin/rollup/rebuild")
+    public int rebuildMonthlyTotals() {
+        return monthlyTotalsRollup.rebuild();
+    }
+}
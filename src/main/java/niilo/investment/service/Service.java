@@ -1,44 +1,111 @@
 package niilo.investment.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import niilo.investment.analytics.MonthlyCostAccumulator;
+import niilo.investment.analytics.PurchaseColumnStore;
 import niilo.investment.employee.Employee;
-import niilo.investment.employee.EmployeeRepository;
-import niilo.investment.sharedata.ShareDataRepository;
+import niilo.investment.employee.EmployeeCache;
+import niilo.investment.rollup.MonthlyEmployeeTotalRepository;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.sharedata.ShareDataCatalog;
 import niilo.investment.statistics.EmployeeMonthlyExpenditure;
+import niilo.investment.statistics.EmployeeMonthlyTotal;
+import niilo.investment.statistics.EmployeeSpending;
 import niilo.investment.statistics.MonthlyAcquiringRecords;
 import niilo.investment.statistics.MonthlyExpenditureDTO;
 import niilo.investment.statistics.MonthlyStockDTO;
+import niilo.investment.statistics.MonthlyTotal;
+import niilo.investment.statistics.SecuritySpending;
 import niilo.investment.stock.Stock;
+import niilo.investment.stock.StockPage;
 import niilo.investment.stock.StockRepository;
+import niilo.investment.stock.StocksSavedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Month;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 @org.springframework.stereotype.Service
 public class Service {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final int MAX_TOP_SIZE = 100;
+    private static final int EXPORT_DETACH_INTERVAL = 500;
+    private static final int INSERT_CHUNK_SIZE = 500;
+
     @Autowired
     private StockRepository stockRepository;
     @Autowired
-    private EmployeeRepository employeeRepository;
+    private EmployeeCache employeeCache;
+    @Autowired
+    private ShareDataCatalog shareDataCatalog;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private PurchaseColumnStore purchaseColumnStore;
+    @Autowired
+    private MonthlyCostAccumulator monthlyCostAccumulator;
     @Autowired
-    private ShareDataRepository shareDataRepository;
+    private MonthlyEmployeeTotalRepository monthlyEmployeeTotalRepository;
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    @PersistenceContext
+    private EntityManager entityManager;
 
     /**
      * Add a single stock to the database.
      */
+    @Transactional
     public Stock addStockToRepository(Stock stock) {
-        return stockRepository.save(stock);
+        attachCatalogShareData(List.of(stock));
+        Stock savedStock = stockRepository.save(stock);
+        eventPublisher.publishEvent(new StocksSavedEvent(List.of(savedStock)));
+        return savedStock;
     }
     /**
-     * Adds multiple stocks to the database.
+     * Adds multiple stocks to the database. The stocks are inserted in JDBC batches and the persistence context is
+     * flushed and cleared after every chunk, so large payloads do not pile up in it.
      */
+    @Transactional
     public List<Stock> addStocksToRepository(List<Stock> stocks) {
-        return stockRepository.saveAll(stocks);
+        List<Stock> savedStocks = new ArrayList<>(stocks.size());
+        for (int from = 0; from < stocks.size(); from += INSERT_CHUNK_SIZE) {
+            List<Stock> chunk = stocks.subList(from, Math.min(from + INSERT_CHUNK_SIZE, stocks.size()));
+            attachCatalogShareData(chunk);
+            savedStocks.addAll(stockRepository.saveAll(chunk));
+            entityManager.flush();
+            entityManager.clear();
+        }
+        eventPublisher.publishEvent(new StocksSavedEvent(savedStocks));
+        return savedStocks;
+    }
+
+    /**
+     * Points the stocks to the catalog entries of their securities, adding the securities that are not in the
+     * catalog yet.
+     */
+    private void attachCatalogShareData(List<Stock> stocks) {
+        Map<String, ShareData> catalog = shareDataCatalog.upsert(stocks.stream().map(Stock::getShareData).toList());
+        stocks.forEach(stock -> stock.setShareData(catalog.get(stock.getShareData().getShareISINCode())));
     }
 
     /**
@@ -48,6 +115,46 @@ public class Service {
         return stockRepository.findAll();
     }
 
+    /**
+     * Writes all the stocks to the output as newline delimited JSON, one stock per line.
+     * Stocks are detached every few hundred rows, so memory use does not grow with the table.
+     * @param outputStream where to write the stocks.
+     */
+    @Transactional(readOnly = true)
+    public void exportStocks(OutputStream outputStream) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Stock.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE).withRootValueSeparator("");
+        try (Stream<Stock> stocks = stockRepository.streamAllForExport();
+             JsonGenerator generator = writer.createGenerator(outputStream)) {
+            int written = 0;
+            for (Iterator<Stock> iterator = stocks.iterator(); iterator.hasNext(); ) {
+                writer.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+                if (++written % EXPORT_DETACH_INTERVAL == 0) {
+                    generator.flush();
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * A page of stocks following the given stock id.
+     * @param after id of the last stock on the previous page, 0 for the first page.
+     * @param limit how many stocks to return at most.
+     * @return Stocks ordered by id and the cursor of the next page.
+     */
+    public StockPage getStocksAfter(long after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Page limit has to be between 1 and " + MAX_PAGE_SIZE);
+        }
+        Slice<Stock> slice = stockRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, limit));
+        List<Stock> stocks = slice.getContent();
+        Long next = slice.hasNext() ? stocks.get(stocks.size() - 1).getId() : null;
+        return new StockPage(stocks, next);
+    }
+
     /**
      * Total amount spent on stocks in each month.
      * @return Monthly expenses across all employees.
@@ -65,11 +172,100 @@ public class Service {
         return calculateEmployeeTotalExpensesForAllMonths(employeeId);
     }
 
+    /**
+     * Writes the monthly expenses of the employees as a JSON array, one employee at a time while the totals are read
+     * from the database.
+     * @param employeeIds ids of the employees, null for all the employees. Ids without an employee are left out.
+     * @param outputStream where to write the expenses.
+     */
+    @Transactional(readOnly = true)
+    public void exportEmployeesMonthlyExpenses(Collection<Long> employeeIds, OutputStream outputStream)
+            throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(EmployeeMonthlyExpenditure.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE).withRootValueSeparator("");
+        try (Stream<EmployeeMonthlyTotal> totals = employeeIds == null
+                ? monthlyEmployeeTotalRepository.streamCostOfEveryEmployeeGroupedByMonth()
+                : monthlyEmployeeTotalRepository.streamCostOfEmployeesGroupedByMonth(employeeIds);
+             JsonGenerator generator = writer.createGenerator(outputStream)) {
+            generator.writeStartArray();
+            Long employeeId = null;
+            List<MonthlyTotal> monthlyTotals = new ArrayList<>();
+            for (Iterator<EmployeeMonthlyTotal> iterator = totals.iterator(); iterator.hasNext(); ) {
+                EmployeeMonthlyTotal total = iterator.next();
+                if (employeeId != null && !employeeId.equals(total.getEmployeeId())) {
+                    writer.writeValue(generator, new EmployeeMonthlyExpenditure(new Employee(employeeId),
+                            toMonthlyExpenditures(monthlyTotals)));
+                    monthlyTotals = new ArrayList<>();
+                }
+                employeeId = total.getEmployeeId();
+                if (total.getMonthNumber() != null) {
+                    monthlyTotals.add(new MonthlyTotal(total.getMonthNumber(), total.getTotalCost()));
+                }
+            }
+            if (employeeId != null) {
+                writer.writeValue(generator, new EmployeeMonthlyExpenditure(new Employee(employeeId),
+                        toMonthlyExpenditures(monthlyTotals)));
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Employees that spent the most in a month or a quarter of a year, or in the whole year when neither is given.
+     * @param year year of the purchases.
+     * @param limit how many employees to return at most.
+     * @return employees with their spending, biggest spender first.
+     */
+    public List<EmployeeSpending> getTopSpenders(int year, Integer month, Integer quarter, int limit) {
+        int[] months = monthRange(month, quarter, limit);
+        return monthlyEmployeeTotalRepository.findTopSpenders(year, months[0], months[1], PageRequest.of(0, limit));
+    }
+
+    /**
+     * Securities that were spent on the most in a month or a quarter of a year, or in the whole year when neither is
+     * given.
+     * @param year year of the purchases.
+     * @param limit how many securities to return at most.
+     * @return securities with the volume and cost bought, most spent on first.
+     */
+    @Transactional(readOnly = true)
+    public List<SecuritySpending> getTopSecurities(int year, Integer month, Integer quarter, int limit) {
+        int[] months = monthRange(month, quarter, limit);
+        return stockRepository.findTopSecurities(year, months[0], months[1], PageRequest.of(0, limit));
+    }
+
+    /**
+     * First and last month number of the period of a top list.
+     */
+    private int[] monthRange(Integer month, Integer quarter, int limit) {
+        if (limit < 1 || limit > MAX_TOP_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Top limit has to be between 1 and " + MAX_TOP_SIZE);
+        }
+        if (month != null && quarter != null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Give either a month or a quarter");
+        }
+        if (month != null) {
+            if (month < 1 || month > 12) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Month has to be between 1 and 12");
+            }
+            return new int[]{month, month};
+        }
+        if (quarter != null) {
+            if (quarter < 1 || quarter > 4) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Quarter has to be between 1 and 4");
+            }
+            return new int[]{quarter * 3 - 2, quarter * 3};
+        }
+        return new int[]{1, 12};
+    }
+
     /**
      * What stocks were bought in a specific month.
      * @param month Month that the stocks were bought on.
      * @return Stocks in a given month.
      */
+    @Transactional(readOnly = true)
     public MonthlyAcquiringRecords AcquiredStocksInAGivenMonth(Integer month) {
         return getStockDataInAMonth(Month.of(month));
     }
@@ -79,10 +275,15 @@ public class Service {
      * @param employeeId id of the employee.
      * @return Stocks categorized by months.
      */
+    @Transactional(readOnly = true)
     public List<MonthlyAcquiringRecords> getAnEmployeeRecordsSortedByMonth(Long employeeId) {
-        return Arrays.stream(Month.values())
-                .map(month -> getAllAcquiredRecordsInAMonthOfAnEmployee(employeeId, month)).toList();
-
+        Employee employee = findEmployee(employeeId);
+        if (purchaseColumnStore.isEnabled()) {
+            return groupByMonth(purchaseColumnStore.findStocks(employee.getId(), null).stream());
+        }
+        try (Stream<MonthlyStockDTO> stocks = stockRepository.streamMonthlyStocksOfEmployee(employee.getId())) {
+            return groupByMonth(stocks);
+        }
     }
 
     /**
@@ -91,24 +292,45 @@ public class Service {
      * @param month Month the stocks were acquired in.
      * @return Stocks bought in that month by the specified employee.
      */
+    @Transactional(readOnly = true)
     public MonthlyAcquiringRecords getAllAcquiredRecordsInAMonthOfAnEmployee(Long employeeId,Month month) {
-        Employee employee = employeeRepository.findById(employeeId)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST,"Employee Id not found"));
-        List<Stock> allStocks = stockRepository.findAll();
-        List<MonthlyStockDTO> monthlyStockDTOList  = allStocks.stream()
-                .filter(stock -> stock.getDate().getMonth().equals(month))
-                .filter(stock -> stock.getEmployee().equals(employee))
-                .map(MonthlyStockDTO::new).toList();
-        return new MonthlyAcquiringRecords(month, monthlyStockDTOList);
+        Employee employee = findEmployee(employeeId);
+        if (purchaseColumnStore.isEnabled()) {
+            return new MonthlyAcquiringRecords(month, purchaseColumnStore.findStocks(employee.getId(), month));
+        }
+        try (Stream<MonthlyStockDTO> stocks = stockRepository.streamMonthlyStocksOfEmployeeInMonth(
+                employee.getId(), month.getValue())) {
+            return new MonthlyAcquiringRecords(month, stocks.toList());
+        }
     }
 
     /**
      * All stocks that have been bought.
      * @return Stocks that have been bought sorted by Months.
      */
+    @Transactional(readOnly = true)
     public List<MonthlyAcquiringRecords> getAllAcquiredRecordsByMonths() {
+        if (purchaseColumnStore.isEnabled()) {
+            return groupByMonth(purchaseColumnStore.findStocks(null, null).stream());
+        }
+        try (Stream<MonthlyStockDTO> stocks = stockRepository.streamMonthlyStocks()) {
+            return groupByMonth(stocks);
+        }
+    }
+
+    /**
+     * Puts the stocks into monthly buckets while reading them only once.
+     * @param stocks stocks to be grouped.
+     * @return Stocks sorted by Months, months without purchases are empty.
+     */
+    private List<MonthlyAcquiringRecords> groupByMonth(Stream<MonthlyStockDTO> stocks) {
+        List<List<MonthlyStockDTO>> stocksByMonth = new ArrayList<>();
+        for (int i = 0; i < Month.values().length; i++) {
+            stocksByMonth.add(new ArrayList<>());
+        }
+        stocks.forEach(stock -> stocksByMonth.get(stock.getDate().getMonthValue() - 1).add(stock));
         return Arrays.stream(Month.values())
-                .map(this::getStockDataInAMonth).toList();
+                .map(month -> new MonthlyAcquiringRecords(month, stocksByMonth.get(month.ordinal()))).toList();
     }
 
     /**
@@ -117,11 +339,12 @@ public class Service {
      * @return Stocks bought in that month.
      */
     private MonthlyAcquiringRecords getStockDataInAMonth(Month month) {
-        List<Stock> allStocks = stockRepository.findAll();
-        List<MonthlyStockDTO> monthlyStockDTOList  = allStocks.stream()
-                .filter(stock -> stock.getDate().getMonth().equals(month))
-                .map(MonthlyStockDTO::new).toList();
-        return new MonthlyAcquiringRecords(month, monthlyStockDTOList);
+        if (purchaseColumnStore.isEnabled()) {
+            return new MonthlyAcquiringRecords(month, purchaseColumnStore.findStocks(null, month));
+        }
+        try (Stream<MonthlyStockDTO> stocks = stockRepository.streamMonthlyStocksOfMonth(month.getValue())) {
+            return new MonthlyAcquiringRecords(month, stocks.toList());
+        }
     }
 
     /**
@@ -129,13 +352,25 @@ public class Service {
      * @return total expenses of all the stocks sorted by month.
      */
     private List<MonthlyExpenditureDTO> calculateTotalCostForAllMonths() {
-        List<Stock> allStocks = stockRepository.findAll();
+        if (purchaseColumnStore.isEnabled()) {
+            return toMonthlyExpenditures(purchaseColumnStore.sumCostGroupedByMonth(null));
+        }
+        return toMonthlyExpenditures(monthlyCostAccumulator.sumCostGroupedByMonth());
+    }
+
+    /**
+     * Spreads the monthly totals over all the months, months without purchases cost zero.
+     * @param monthlyTotals totals of the months that had purchases.
+     * @return expenses of every month.
+     */
+    private List<MonthlyExpenditureDTO> toMonthlyExpenditures(List<MonthlyTotal> monthlyTotals) {
+        long[] costs = new long[Month.values().length];
+        for (MonthlyTotal monthlyTotal : monthlyTotals) {
+            costs[monthlyTotal.getMonthNumber() - 1] = monthlyTotal.getTotalCost();
+        }
         List<MonthlyExpenditureDTO> allMonthlyCosts = new ArrayList<>();
         for (Month month : Month.values()) {
-            List<Stock> monthlyStocks = allStocks.stream()
-                    .filter(stock -> stock.getDate().getMonth().equals(month))
-                    .toList();
-            allMonthlyCosts.add(new MonthlyExpenditureDTO(monthlyStocks,month));
+            allMonthlyCosts.add(new MonthlyExpenditureDTO(month, costs[month.ordinal()]));
         }
         return allMonthlyCosts;
     }
@@ -146,17 +381,24 @@ public class Service {
      * @return In each month how much did the employee spent.
      */
     private EmployeeMonthlyExpenditure calculateEmployeeTotalExpensesForAllMonths(Long employeeId) {
-        Employee employee = employeeRepository.findById(employeeId).orElseThrow(
-                () -> new ResponseStatusException(HttpStatus.BAD_REQUEST,"Employee Id not found"));
-        List<Stock> allStocks = stockRepository.findAll();
-        List<MonthlyExpenditureDTO> allMonthlyCosts = new ArrayList<>();
-        for (Month month : Month.values()) {
-            List<Stock> monthlyStocks = allStocks.stream()
-                    .filter(stock -> stock.getDate().getMonth().equals(month))
-                    .filter(stock -> stock.getEmployee().equals(employee))
-                    .toList();
-            allMonthlyCosts.add(new MonthlyExpenditureDTO(monthlyStocks,month));
-        }
+        Employee employee = findEmployee(employeeId);
+        List<MonthlyTotal> monthlyTotals = purchaseColumnStore.isEnabled()
+                ? purchaseColumnStore.sumCostGroupedByMonth(employee.getId())
+                : monthlyCostAccumulator.sumCostOfEmployeeGroupedByMonth(employee.getId());
+        List<MonthlyExpenditureDTO> allMonthlyCosts = toMonthlyExpenditures(monthlyTotals);
         return new EmployeeMonthlyExpenditure(employee,allMonthlyCosts);
     }
+
+    /**
+     * Finds the employee or tells the client that there is no such employee. An employee is only its id, so a
+     * known id is all that is needed to build it.
+     * @param employeeId id of the employee.
+     * @return the employee.
+     */
+    private Employee findEmployee(Long employeeId) {
+        if (!employeeCache.exists(employeeId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Employee Id not found");
+        }
+        return new Employee(employeeId);
+    }
 }
@@ -5,9 +5,15 @@ import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
-@Table(name = "share_data")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
+@Table(name = "share_data", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_share_data_isin", columnNames = "share_ISIN_code")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -15,7 +21,8 @@ import lombok.NoArgsConstructor;
 public class ShareData {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "share_data_seq")
+    @SequenceGenerator(name = "share_data_seq", sequenceName = "share_data_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
     @Column(name = "company_name")
@@ -0,0 +1,86 @@
+package niilo.investment.sharedata;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog of securities, there is one share data row per ISIN code however many times the security is bought.
+ * The first import of an ISIN code adds it with the details sent along, later imports only refer to it and never
+ * change its details.
+ */
+@Component
+public class ShareDataCatalog {
+
+    /**
+     * New ids are taken from share_data_seq one value at a time, which never overlaps with the blocks Hibernate's
+     * pooled generator hands out.
+     */
+    private static final String ADD_IF_MISSING = """
+            INSERT INTO share_data (id, company_name, share_name, share_isin_code, country,
+                field_of_economic_activity)
+            SELECT NEXT VALUE FOR share_data_seq, ?, ?, ?, ?, ?
+            WHERE NOT EXISTS (SELECT 1 FROM share_data WHERE share_isin_code = ?)""";
+
+    @Autowired
+    private ShareDataRepository shareDataRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Finds the catalog entries of the share data with one query and adds the ISIN codes that are missing. Has to be
+     * called inside the transaction that saves the stocks.
+     * @param shareData share data sent by the client, several of them can have the same ISIN code.
+     * @return catalog entries by ISIN code.
+     */
+    public Map<String, ShareData> upsert(Collection<ShareData> shareData) {
+        if (shareData.isEmpty()) {
+            return new HashMap<>();
+        }
+        List<String> isinCodes = shareData.stream().map(ShareData::getShareISINCode).distinct().toList();
+        Map<String, ShareData> catalog = findAll(isinCodes);
+        Map<String, ShareData> missing = new LinkedHashMap<>();
+        for (ShareData incoming : shareData) {
+            if (!catalog.containsKey(incoming.getShareISINCode())) {
+                missing.putIfAbsent(incoming.getShareISINCode(), incoming);
+            }
+        }
+        if (missing.isEmpty()) {
+            return catalog;
+        }
+        missing.values().forEach(this::addIfMissing);
+        catalog.putAll(findAll(missing.keySet()));
+        return catalog;
+    }
+
+    /**
+     * A transaction that adds the same ISIN code at the same time makes the insert fail on uk_share_data_isin once
+     * it commits. Only the insert is rolled back, and the entry of the other transaction is read with the rest. Any
+     * other violation leaves the ISIN code missing and is thrown.
+     */
+    private void addIfMissing(ShareData shareData) {
+        try {
+            jdbcTemplate.update(ADD_IF_MISSING, shareData.getCompanyName(), shareData.getShareName(),
+                    shareData.getShareISINCode(), shareData.getCountry(), shareData.getFieldOfEconomicActivity(),
+                    shareData.getShareISINCode());
+        } catch (DataIntegrityViolationException exception) {
+            if (shareDataRepository.findAllByShareISINCodeIn(List.of(shareData.getShareISINCode())).isEmpty()) {
+                throw exception;
+            }
+        }
+    }
+
+    private Map<String, ShareData> findAll(Collection<String> isinCodes) {
+        return shareDataRepository.findAllByShareISINCodeIn(isinCodes).stream()
+                .collect(Collectors.toMap(ShareData::getShareISINCode, entry -> entry, (a, b) -> a, HashMap::new));
+    }
+}
@@ -1,8 +1,19 @@
 package niilo.investment.sharedata;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface ShareDataRepository extends JpaRepository<ShareData,Long> {
+
+    /**
+     * Catalog entries of the given ISIN codes.
+     */
+    @Query("select s from ShareData s where s.shareISINCode in :isinCodes")
+    List<ShareData> findAllByShareISINCodeIn(@Param("isinCodes") Collection<String> isinCodes);
 }
@@ -0,0 +1,19 @@
+package niilo.investment.statistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Total of one employee in one month of the year, the month and cost are null for an employee without purchases.
+ */
+@Data
+@AllArgsConstructor
+public class EmployeeMonthlyTotal {
+
+    private Long employeeId;
+    private Integer monthNumber;
+    /**
+     * Cost in minor units, see Money.
+     */
+    private Long totalCost;
+}
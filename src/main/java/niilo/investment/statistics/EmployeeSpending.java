@@ -0,0 +1,18 @@
+package niilo.investment.statistics;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import niilo.investment.money.MoneySerializer;
+
+@Data
+@AllArgsConstructor
+public class EmployeeSpending {
+
+    private Long employeeId;
+    /**
+     * Cost in minor units, see Money.
+     */
+    @JsonSerialize(using = MoneySerializer.class)
+    private Long totalCost;
+}
@@ -1,22 +1,20 @@
 package niilo.investment.statistics;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
 import lombok.Data;
-import niilo.investment.stock.Stock;
+import niilo.investment.money.MoneySerializer;
 
-import java.math.BigDecimal;
 import java.time.Month;
-import java.util.List;
 
 @Data
+@AllArgsConstructor
 public class MonthlyExpenditureDTO {
 
     private Month month;
-    private BigDecimal totalCost;
-
-    public MonthlyExpenditureDTO(List<Stock> stocks, Month month) {
-        totalCost = stocks.stream()
-                .map(stock -> BigDecimal.valueOf(stock.getPricePerShare() * stock.getVolumeAcquired()))
-                .reduce(BigDecimal.ZERO,BigDecimal::add);
-        this.month = month;
-    }
+    /**
+     * Cost in minor units, see Money.
+     */
+    @JsonSerialize(using = MoneySerializer.class)
+    private long totalCost;
 }
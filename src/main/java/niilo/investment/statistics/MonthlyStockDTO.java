@@ -1,8 +1,11 @@
 package niilo.investment.statistics;
 
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import lombok.Data;
 import niilo.investment.employee.Employee;
-import niilo.investment.stock.Stock;
+import niilo.investment.money.Money;
+import niilo.investment.money.MoneySerializer;
+import niilo.investment.sharedata.ShareData;
 
 import java.time.LocalDate;
 
@@ -15,21 +18,42 @@ public class MonthlyStockDTO {
     private String country;
     private String fieldOfEconomicActivity;
     private LocalDate date;
-    private Double price;
+    /**
+     * Price in minor units, see Money.
+     */
+    @JsonSerialize(using = MoneySerializer.class)
+    private Long price;
     private Long volume;
-    private Double totalPrice;
+    @JsonSerialize(using = MoneySerializer.class)
+    private Long totalPrice;
     private Employee employee;
 
-    public MonthlyStockDTO(Stock stock) {
-        this.companyName = stock.getShareData().getCompanyName();
-        this.shareName = stock.getShareData().getShareName();
-        this.shareISINCode = stock.getShareData().getShareISINCode();
-        this.country = stock.getShareData().getCountry();
-        this.fieldOfEconomicActivity = stock.getShareData().getFieldOfEconomicActivity();
-        this.date = stock.getDate();
-        this.price = stock.getPricePerShare();
-        this.volume = stock.getVolumeAcquired();
-        this.totalPrice = stock.getPricePerShare() * stock.getVolumeAcquired();
-        this.employee = stock.getEmployee();
+    /**
+     * Used by the report queries of StockRepository.
+     */
+    public MonthlyStockDTO(String companyName, String shareName, String shareISINCode, String country,
+                           String fieldOfEconomicActivity, LocalDate date, Long price, Long volume, Long employeeId) {
+        this(companyName, shareName, shareISINCode, country, fieldOfEconomicActivity, date, price, volume,
+                new Employee(employeeId));
+    }
+
+    public MonthlyStockDTO(ShareData shareData, LocalDate date, long price, long volume, Employee employee) {
+        this(shareData.getCompanyName(), shareData.getShareName(), shareData.getShareISINCode(),
+                shareData.getCountry(), shareData.getFieldOfEconomicActivity(), date, price, volume, employee);
+    }
+
+    private MonthlyStockDTO(String companyName, String shareName, String shareISINCode, String country,
+                            String fieldOfEconomicActivity, LocalDate date, long price, long volume,
+                            Employee employee) {
+        this.companyName = companyName;
+        this.shareName = shareName;
+        this.shareISINCode = shareISINCode;
+        this.country = country;
+        this.fieldOfEconomicActivity = fieldOfEconomicActivity;
+        this.date = date;
+        this.price = price;
+        this.volume = volume;
+        this.totalPrice = Money.multiply(price, volume);
+        this.employee = employee;
     }
 }
@@ -0,0 +1,15 @@
+package niilo.investment.statistics;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MonthlyTotal {
+
+    private Integer monthNumber;
+    /**
+     * Cost in minor units, see Money.
+     */
+    private Long totalCost;
+}
@@ -0,0 +1,20 @@
+package niilo.investment.statistics;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import niilo.investment.money.MoneySerializer;
+
+@Data
+@AllArgsConstructor
+public class SecuritySpending {
+
+    private String shareISINCode;
+    private String companyName;
+    private Long volumeAcquired;
+    /**
+     * Cost in minor units, see Money.
+     */
+    @JsonSerialize(using = MoneySerializer.class)
+    private Long totalCost;
+}
@@ -0,0 +1,45 @@
+package niilo.investment.stock;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Version of the purchase data, it grows every time stocks are saved. Starts from the startup time, so a version
+ * handed out before a restart is not reused after it.
+ */
+@Component
+public class DataVersion {
+
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis());
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * Strong ETag of a version.
+     */
+    public static String eTag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Strong ETag of a version of a response that depends on the year.
+     */
+    public static String eTag(long version, int year) {
+        return "\"" + version + "-" + year + "\"";
+    }
+
+    /**
+     * Moves on only after the commit and after the other listeners, so a new version never sees the old data.
+     */
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    void stocksSaved(StocksSavedEvent event) {
+        version.incrementAndGet();
+    }
+}
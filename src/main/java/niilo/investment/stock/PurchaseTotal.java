@@ -0,0 +1,42 @@
+package niilo.investment.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import niilo.investment.money.Money;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cost in minor units and number of the stocks an employee bought in one month of a year.
+ */
+@Data
+@AllArgsConstructor
+public class PurchaseTotal {
+
+    private long employeeId;
+    private int purchaseYear;
+    private int purchaseMonth;
+    private long totalCost;
+    private long purchaseCount;
+
+    /**
+     * Adds the stocks up by employee and month of a year.
+     */
+    public static List<PurchaseTotal> sumUp(List<Stock> stocks) {
+        Map<List<Object>, PurchaseTotal> totals = new LinkedHashMap<>();
+        for (Stock stock : stocks) {
+            long employeeId = stock.getEmployee().getId();
+            int year = stock.getDate().getYear();
+            int month = stock.getDate().getMonthValue();
+            PurchaseTotal total = totals.computeIfAbsent(List.of(employeeId, year, month),
+                    key -> new PurchaseTotal(employeeId, year, month, 0, 0));
+            total.totalCost = Money.add(total.totalCost,
+                    Money.multiply(stock.getPricePerShare(), stock.getVolumeAcquired()));
+            total.purchaseCount++;
+        }
+        return new ArrayList<>(totals.values());
+    }
+}
@@ -0,0 +1,121 @@
+package niilo.investment.stock;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the responses of the read endpoints of the current data version by endpoint and parameters. The responses
+ * are weighed by the length of their JSON, and the least recently used ones are dropped once they weigh more than
+ * max-bytes together. All the responses are dropped when the data version moves on.
+ */
+@Component
+public class ResponseCache {
+
+    @Value("${investment.cache.responses.max-bytes:16777216}")
+    private long maxBytes;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<List<Object>, Response> responses = new LinkedHashMap<>(16, 0.75f, true);
+    private long version;
+    private long bytes;
+
+    /**
+     * Returns the cached response or builds and caches it. The response is built outside the lock, two requests
+     * that miss at the same time both build it. A response built from an older version than the cached ones is
+     * returned but not kept.
+     * @param version data version the response is built from.
+     * @param endpoint path of the endpoint.
+     * @param params parameters of the request.
+     * @param response builds the response.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(long version, String endpoint, List<Object> params, Supplier<T> response) {
+        List<Object> key = List.of(endpoint, params);
+        synchronized (responses) {
+            moveTo(version);
+            Response cached = responses.get(key);
+            if (cached != null && this.version == version) {
+                return (T) cached.getBody();
+            }
+        }
+        T built = response.get();
+        long weight = weigh(built);
+        synchronized (responses) {
+            moveTo(version);
+            if (this.version == version && weight <= maxBytes) {
+                Response replaced = responses.put(key, new Response(built, weight));
+                bytes += weight - (replaced != null ? replaced.getWeight() : 0);
+                evict();
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Drops the responses as soon as new stocks are committed, instead of keeping them until the next request.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    void stocksSaved(StocksSavedEvent event) {
+        synchronized (responses) {
+            responses.clear();
+            bytes = 0;
+        }
+    }
+
+    public int size() {
+        synchronized (responses) {
+            return responses.size();
+        }
+    }
+
+    public long bytes() {
+        synchronized (responses) {
+            return bytes;
+        }
+    }
+
+    private void moveTo(long version) {
+        if (version > this.version) {
+            responses.clear();
+            bytes = 0;
+            this.version = version;
+        }
+    }
+
+    private void evict() {
+        Iterator<Response> eldest = responses.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().getWeight();
+            eldest.remove();
+        }
+    }
+
+    private long weigh(Object body) {
+        try {
+            return objectMapper.writeValueAsBytes(body).length;
+        } catch (JsonProcessingException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class Response {
+        private Object body;
+        private long weight;
+    }
+}
@@ -1,32 +1,116 @@
 package niilo.investment.stock;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import jakarta.persistence.*;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 import niilo.investment.employee.Employee;
+import niilo.investment.money.MoneyDeserializer;
+import niilo.investment.money.MoneySerializer;
 import niilo.investment.sharedata.ShareData;
+import org.springframework.data.domain.Persistable;
 
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "stocks")
+@Table(name = "stocks", indexes = {
+        @Index(name = "idx_stocks_month", columnList = "purchase_month, Date"),
+        @Index(name = "idx_stocks_employee_month", columnList = "employee_id, purchase_month, Date"),
+        @Index(name = "idx_stocks_share_data", columnList = "share_data_id")
+})
+@NamedEntityGraph(name = Stock.WITH_DETAILS, attributeNodes = {
+        @NamedAttributeNode("shareData"),
+        @NamedAttributeNode("employee")
+})
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
-public class Stock {
+public class Stock implements Persistable<Long> {
+
+    /**
+     * Loads the share data and the employee in the same query, for everything that returns stocks to the client.
+     */
+    public static final String WITH_DETAILS = "Stock.withDetails";
 
     @Id
     @Column(name = "id")
     private Long id;
-    @OneToOne(cascade = CascadeType.ALL)
+    /**
+     * Entry of the security in the share data catalog, shared by all the purchases of that security.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
     private ShareData shareData;
+    /**
+     * Price in minor units, see Money.
+     */
+    @JsonSerialize(using = MoneySerializer.class)
+    @JsonDeserialize(using = MoneyDeserializer.class)
     @Column(name = "price_per_share")
-    private Double pricePerShare;
+    private Long pricePerShare;
     @Column(name = "volume_acquired")
     private Long volumeAcquired;
     @Column(name = "Date")
     private LocalDate date;
-    @ManyToOne(cascade = CascadeType.ALL)
+    @ManyToOne(fetch = FetchType.LAZY)
     private Employee employee;
+    /**
+     * Month of the purchase date, kept in its own column so the monthly reports can use an index.
+     */
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @Column(name = "purchase_month")
+    private Integer purchaseMonth;
+    /**
+     * Ids are given by the client, so whether the stock has been saved can not be told from the id.
+     */
+    @Transient
+    @JsonIgnore
+    @Setter(AccessLevel.NONE)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private boolean persisted;
+
+    public Stock(Long id, ShareData shareData, Long pricePerShare, Long volumeAcquired, LocalDate date,
+                 Employee employee) {
+        this.id = id;
+        this.shareData = shareData;
+        this.pricePerShare = pricePerShare;
+        this.volumeAcquired = volumeAcquired;
+        this.employee = employee;
+        setDate(date);
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+        updatePurchaseMonth();
+    }
+
+    /**
+     * New stocks are inserted straight away instead of being merged, which would first select them.
+     */
+    @Override
+    @JsonIgnore
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
+
+    /**
+     * Keeps the purchase month in line with the date.
+     */
+    @PrePersist
+    @PreUpdate
+    void updatePurchaseMonth() {
+        purchaseMonth = date == null ? null : date.getMonthValue();
+    }
 }
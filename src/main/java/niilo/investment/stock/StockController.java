@@ -1,34 +1,88 @@
 package niilo.investment.stock;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import niilo.investment.ingest.ChunkResult;
+import niilo.investment.ingest.CsvImportResult;
+import niilo.investment.ingest.CsvStockImporter;
+import niilo.investment.ingest.StockStreamImporter;
 import niilo.investment.service.Service;
 import niilo.investment.statistics.EmployeeMonthlyExpenditure;
+import niilo.investment.statistics.EmployeeSpending;
 import niilo.investment.statistics.MonthlyAcquiringRecords;
 import niilo.investment.statistics.MonthlyExpenditureDTO;
+import niilo.investment.statistics.SecuritySpending;
 import niilo.investment.validators.StockValidator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
+import java.io.IOException;
 import java.time.Month;
+import java.time.Year;
+import java.util.Arrays;
 import java.util.List;
+import java.util.function.Supplier;
 
 @CrossOrigin
 @RestController
 @RequestMapping(path = "/api")
 public class StockController {
 
+    static final String NDJSON = "application/x-ndjson";
+    static final String CSV = "text/csv";
+
     @Autowired
     Service service;
 
     @Autowired
     StockValidator stockValidator;
 
+    @Autowired
+    StockStreamImporter stockStreamImporter;
+
+    @Autowired
+    CsvStockImporter csvStockImporter;
+
+    @Autowired
+    DataVersion dataVersion;
+
+    @Autowired
+    ResponseCache responseCache;
+
     /**
-     * Request all the stocks from database.
+     * Request all the stocks from database at once, has to be asked for explicitly with all=true.
      */
-    @GetMapping(path = "/stocks")
-    public List<Stock> getAllStocks() {
+    @GetMapping(path = "/stocks", params = "all=true")
+    public List<Stock> getAllStocks(WebRequest request) {
+        if (request.checkNotModified(DataVersion.eTag(dataVersion.current()))) {
+            return null;
+        }
         return service.getAllStocks();
     }
+    /**
+     * Request a page of stocks that follow the stock with the given id.
+     */
+    @GetMapping(path = "/stocks")
+    public StockPage getStocks(@RequestParam(defaultValue = "0") long after,
+                               @RequestParam(defaultValue = "100") int limit, WebRequest request) {
+        if (request.checkNotModified(DataVersion.eTag(dataVersion.current()))) {
+            return null;
+        }
+        return service.getStocksAfter(after, limit);
+    }
+    /**
+     * Export all the stocks as newline delimited JSON, streamed while they are read from the database.
+     */
+    @GetMapping(path = "/stocks/export")
+    public void exportStocks(HttpServletResponse response, WebRequest request) throws IOException {
+        if (request.checkNotModified(DataVersion.eTag(dataVersion.current()))) {
+            return;
+        }
+        response.setContentType(NDJSON);
+        service.exportStocks(response.getOutputStream());
+    }
     /**
      * First validate a single  stock, then add to the database.
      */
@@ -45,46 +99,139 @@ public class StockController {
         List<Stock> validStocks = stockValidator.validateAllStocks(addedStocks);
         return service.addStocksToRepository(validStocks);
     }
+    /**
+     * Import a JSON array or newline delimited JSON of stocks, validated and saved in chunks while it is read.
+     */
+    @PostMapping(path = "/stocks/import", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public List<ChunkResult> importStocks(HttpServletRequest request) throws IOException {
+        return stockStreamImporter.importStocks(request.getInputStream());
+    }
+    /**
+     * Import a CSV of stocks, the valid stocks are saved and the rejected ones are returned with the reason.
+     */
+    @PostMapping(path = "/stocks/import/csv", consumes = CSV)
+    public CsvImportResult importStocksFromCsv(HttpServletRequest request) throws IOException {
+        return csvStockImporter.importCsv(request.getInputStream());
+    }
     /**
      * Request a monthly expenses statistics.
      */
     @GetMapping(path = "/monthly")
-    public List<MonthlyExpenditureDTO> getMonthlyCost() {
-        return service.getMonthlyCost();
+    public List<MonthlyExpenditureDTO> getMonthlyCost(WebRequest request) {
+        return cached(request, "/monthly", List.of(), service::getMonthlyCost);
     }
     /**
      * Request a monthly expenses statistics of a given Employee.
      */
     @GetMapping(path = "/monthly/{id}")
-    public EmployeeMonthlyExpenditure getEmployeeMonthlyExpenses(@PathVariable long id) {
-        return service.getEmployeeMonthlyExpenses(id);
+    public EmployeeMonthlyExpenditure getEmployeeMonthlyExpenses(@PathVariable long id, WebRequest request) {
+        return cached(request, "/monthly/{id}", List.of(id), () -> service.getEmployeeMonthlyExpenses(id));
+    }
+    /**
+     * Request the monthly expenses of every employee, or of the employees with the given ids, streamed as a JSON
+     * array one employee at a time.
+     */
+    @GetMapping(path = "/monthly/employees")
+    public void exportEmployeesMonthlyExpenses(@RequestParam(required = false) List<Long> ids,
+                                               HttpServletResponse response, WebRequest request) throws IOException {
+        if (request.checkNotModified(DataVersion.eTag(dataVersion.current()))) {
+            return;
+        }
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        service.exportEmployeesMonthlyExpenses(ids, response.getOutputStream());
+    }
+    /**
+     * Request the employees that spent the most in a month or a quarter of a year, or in the whole year. The year is
+     * the current one when not given.
+     */
+    @GetMapping(path = "/top/employees")
+    public List<EmployeeSpending> getTopSpenders(@RequestParam(required = false) Integer year,
+                                                 @RequestParam(required = false) Integer month,
+                                                 @RequestParam(required = false) Integer quarter,
+                                                 @RequestParam(defaultValue = "10") int limit, WebRequest request) {
+        int topYear = yearOrCurrent(year);
+        return cachedOfYear(request, topYear, "/top/employees", Arrays.asList(topYear, month, quarter, limit),
+                () -> service.getTopSpenders(topYear, month, quarter, limit));
+    }
+    /**
+     * Request the securities that were spent on the most in a month or a quarter of a year, or in the whole year.
+     * The year is the current one when not given.
+     */
+    @GetMapping(path = "/top/securities")
+    public List<SecuritySpending> getTopSecurities(@RequestParam(required = false) Integer year,
+                                                   @RequestParam(required = false) Integer month,
+                                                   @RequestParam(required = false) Integer quarter,
+                                                   @RequestParam(defaultValue = "10") int limit, WebRequest request) {
+        int topYear = yearOrCurrent(year);
+        return cachedOfYear(request, topYear, "/top/securities", Arrays.asList(topYear, month, quarter, limit),
+                () -> service.getTopSecurities(topYear, month, quarter, limit));
     }
     /**
      * Request all the stocks bought in a specified month.
      */
     @GetMapping(path = "/monthly/stocks/{month}")
-    public MonthlyAcquiringRecords getAcquiredStocksStatisticsInAGivenMonth(@PathVariable Integer month) {
-        return service.AcquiredStocksInAGivenMonth(month);
+    public MonthlyAcquiringRecords getAcquiredStocksStatisticsInAGivenMonth(@PathVariable Integer month,
+                                                                            WebRequest request) {
+        return cached(request, "/monthly/stocks/{month}", List.of(month),
+                () -> service.AcquiredStocksInAGivenMonth(month));
     }
     /**
      * Request all the stocks sorted by months.
      */
     @GetMapping(path = "/monthly/stocks")
-    public List<MonthlyAcquiringRecords> getAcquiredStocksStatistics() {
-        return service.getAllAcquiredRecordsByMonths();
+    public List<MonthlyAcquiringRecords> getAcquiredStocksStatistics(WebRequest request) {
+        return cached(request, "/monthly/stocks", List.of(), service::getAllAcquiredRecordsByMonths);
     }
     /**
      * Request all the stocks bought by a specified employee in a given month.
      */
     @GetMapping(path = "/monthly/stocks/{month}/{id}")
-    public MonthlyAcquiringRecords getAcquiredStocksStatisticsInAGivenMonth(@PathVariable Integer month, @PathVariable long id) {
-        return service.getAllAcquiredRecordsInAMonthOfAnEmployee(id, Month.of(month));
+    public MonthlyAcquiringRecords getAcquiredStocksStatisticsInAGivenMonth(@PathVariable Integer month, @PathVariable long id,
+                                                                            WebRequest request) {
+        return cached(request, "/monthly/stocks/{month}/{id}", List.of(month, id),
+                () -> service.getAllAcquiredRecordsInAMonthOfAnEmployee(id, Month.of(month)));
     }
     /**
      * Request all the stocks bought by a specified employee.
      */
     @GetMapping(path = "/stocks/{id}")
-    public List<MonthlyAcquiringRecords> getEmployeeAcquiredStocksSortedByMonths(@PathVariable long id) {
-        return service.getAnEmployeeRecordsSortedByMonth(id);
+    public List<MonthlyAcquiringRecords> getEmployeeAcquiredStocksSortedByMonths(@PathVariable long id,
+                                                                                 WebRequest request) {
+        return cached(request, "/stocks/{id}", List.of(id), () -> service.getAnEmployeeRecordsSortedByMonth(id));
+    }
+
+    /**
+     * The year is resolved before the cache and the ETag are made, so a response of last year is not returned after
+     * New Year.
+     */
+    private static int yearOrCurrent(Integer year) {
+        return year != null ? year : Year.now().getValue();
+    }
+
+    /**
+     * Answers 304 without building the response when the client has the current version, otherwise returns the
+     * response of the current version from the cache.
+     */
+    private <T> T cached(WebRequest request, String endpoint, List<Object> params, Supplier<T> response) {
+        long version = dataVersion.current();
+        return cached(request, version, DataVersion.eTag(version), endpoint, params, response);
+    }
+
+    /**
+     * Same as cached, for responses that depend on the year. The year is part of the ETag, so a client that asks
+     * without a year gets the list of the new year after New Year even when no stocks were saved.
+     */
+    private <T> T cachedOfYear(WebRequest request, int year, String endpoint, List<Object> params,
+                               Supplier<T> response) {
+        long version = dataVersion.current();
+        return cached(request, version, DataVersion.eTag(version, year), endpoint, params, response);
+    }
+
+    private <T> T cached(WebRequest request, long version, String eTag, String endpoint, List<Object> params,
+                         Supplier<T> response) {
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        return responseCache.get(version, endpoint, params, response);
     }
 }
@@ -0,0 +1,17 @@
+package niilo.investment.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class StockPage {
+
+    private List<Stock> stocks;
+    /**
+     * Id to pass as the after parameter for the next page, null on the last page.
+     */
+    private Long next;
+}
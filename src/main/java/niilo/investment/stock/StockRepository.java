@@ -1,6 +1,97 @@
 package niilo.investment.stock;
 
+import jakarta.persistence.QueryHint;
+import niilo.investment.statistics.MonthlyStockDTO;
+import niilo.investment.statistics.SecuritySpending;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
 public interface StockRepository extends JpaRepository<Stock,Long> {
+
+    /**
+     * All the purchases with their share data and employees, read with one query.
+     */
+    @Override
+    @EntityGraph(Stock.WITH_DETAILS)
+    List<Stock> findAll();
+
+    /**
+     * Selects the report columns of a purchase straight into MonthlyStockDTO, no entities are created.
+     */
+    String MONTHLY_STOCK = "select new niilo.investment.statistics.MonthlyStockDTO(d.companyName, d.shareName, "
+            + "d.shareISINCode, d.country, d.fieldOfEconomicActivity, s.date, s.pricePerShare, s.volumeAcquired, "
+            + "s.employee.id) from Stock s join s.shareData d ";
+
+    /**
+     * Streams all the purchases ordered by their date, has to be consumed inside a transaction.
+     */
+    @Query(MONTHLY_STOCK + "order by s.date")
+    Stream<MonthlyStockDTO> streamMonthlyStocks();
+
+    /**
+     * Streams the purchases of one employee ordered by their date, has to be consumed inside a transaction.
+     */
+    @Query(MONTHLY_STOCK + "where s.employee.id = :employeeId order by s.date")
+    Stream<MonthlyStockDTO> streamMonthlyStocksOfEmployee(@Param("employeeId") Long employeeId);
+
+    /**
+     * Streams the purchases made in a month of any year ordered by their date, has to be consumed inside a
+     * transaction.
+     */
+    @Query(MONTHLY_STOCK + "where s.purchaseMonth = :purchaseMonth order by s.date")
+    Stream<MonthlyStockDTO> streamMonthlyStocksOfMonth(@Param("purchaseMonth") Integer purchaseMonth);
+
+    /**
+     * Streams the purchases of one employee made in a month of any year ordered by their date, has to be consumed
+     * inside a transaction.
+     */
+    @Query(MONTHLY_STOCK + "where s.employee.id = :employeeId and s.purchaseMonth = :purchaseMonth order by s.date")
+    Stream<MonthlyStockDTO> streamMonthlyStocksOfEmployeeInMonth(@Param("employeeId") Long employeeId,
+                                                                 @Param("purchaseMonth") Integer purchaseMonth);
+
+    /**
+     * Securities that were spent on the most in the months of the given year between the given ones, the database
+     * keeps only the top rows of the sort. Ties are ordered by ISIN code.
+     */
+    @Query("select new niilo.investment.statistics.SecuritySpending(d.shareISINCode, d.companyName, "
+            + "sum(s.volumeAcquired), sum(s.pricePerShare * s.volumeAcquired)) from Stock s join s.shareData d "
+            + "where s.purchaseMonth between :firstMonth and :lastMonth and extract(year from s.date) = :year "
+            + "group by d.shareISINCode, d.companyName "
+            + "order by sum(s.pricePerShare * s.volumeAcquired) desc, d.shareISINCode")
+    List<SecuritySpending> findTopSecurities(@Param("year") Integer year, @Param("firstMonth") Integer firstMonth,
+                                             @Param("lastMonth") Integer lastMonth, Pageable pageable);
+
+    /**
+     * Purchases with an id bigger than the given one, in the order of their id. Does not count the rows.
+     */
+    @EntityGraph(Stock.WITH_DETAILS)
+    Slice<Stock> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Streams all the purchases with their share data and employee in the order of their id, fetching them from the
+     * database in batches. The associations are optional, so purchases without them are exported too. Has to be
+     * consumed inside a transaction.
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select s from Stock s left join fetch s.shareData left join fetch s.employee order by s.id")
+    Stream<Stock> streamAllForExport();
+
+    /**
+     * Which of the given ids already belong to a purchase.
+     */
+    @Query("select s.id from Stock s where s.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
 }
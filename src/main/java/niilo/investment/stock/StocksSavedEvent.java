@@ -0,0 +1,28 @@
+package niilo.investment.stock;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Published when stocks are saved, listeners that keep derived data in sync handle it after the commit.
+ */
+@Data
+@AllArgsConstructor
+public class StocksSavedEvent {
+
+    /**
+     * Saved stocks with their ids, catalog share data ids and employee ids. Empty when the stocks were saved without
+     * loading them, only the column store needs them.
+     */
+    private List<Stock> stocks;
+    /**
+     * Cost and number of the saved stocks by employee and month of a year.
+     */
+    private List<PurchaseTotal> totals;
+
+    public StocksSavedEvent(List<Stock> stocks) {
+        this(stocks, PurchaseTotal.sumUp(stocks));
+    }
+}
@@ -1,27 +1,58 @@
 package niilo.investment.validators;
 
 import niilo.investment.employee.Employee;
-import niilo.investment.employee.EmployeeRepository;
+import niilo.investment.employee.EmployeeCache;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
 
 @Component
 public class EmployeeValidator {
 
     @Autowired
-    private EmployeeRepository employeeRepository;
+    private EmployeeCache employeeCache;
 
     /**
      * Validates the employee
      * @param employee employee to be validated.
      */
     public void validateEmployee(Employee employee) {
-        if (employee.getId() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Employee ID is missing");
-        } else if (!employeeRepository.existsById(employee.getId())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Employee not in the database");
+        List<ValidationError> errors = new ArrayList<>(1);
+        findErrors(employee, 1, employeeCache::exists, errors);
+        ValidationError.rejectIfAny(errors);
+    }
+
+    /**
+     * Checks the employee against employee ids that have been looked up already, without throwing.
+     * @param employee employee to be validated.
+     * @param stockNumber number of the stock in its batch.
+     * @param employeeExists tells if an employee id is in the database.
+     * @param errors where the error is added.
+     */
+    public void findErrors(Employee employee, int stockNumber, Predicate<Long> employeeExists,
+                           List<ValidationError> errors) {
+        if (employee == null || employee.getId() == null) {
+            errors.add(new ValidationError(stockNumber, "employee.id", "Employee ID is missing"));
+        } else if (!employeeExists.test(employee.getId())) {
+            errors.add(new ValidationError(stockNumber, "employee.id", "Employee not in the database"));
+        }
+    }
+
+    /**
+     * Looks up which of the employee ids are in the database, the ids not cached yet are looked up with one query.
+     * @param employeeIds ids to look for.
+     * @return ids that belong to an employee.
+     */
+    public Set<Long> findExistingEmployeeIds(Collection<Long> employeeIds) {
+        if (employeeIds.isEmpty()) {
+            return Set.of();
         }
+        return employeeCache.findExisting(new HashSet<>(employeeIds));
     }
 }
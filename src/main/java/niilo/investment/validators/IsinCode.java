@@ -0,0 +1,46 @@
+package niilo.investment.validators;
+
+import java.util.regex.Pattern;
+
+/**
+ * Checks of ISIN codes (ISO 6166): two letter country code, nine letters or digits and a check digit.
+ */
+public final class IsinCode {
+
+    private static final Pattern FORMAT = Pattern.compile("[A-Z]{2}[A-Z0-9]{9}[0-9]");
+
+    private IsinCode() {
+    }
+
+    public static boolean hasValidFormat(String isinCode) {
+        return FORMAT.matcher(isinCode).matches();
+    }
+
+    /**
+     * Checks the last digit with the Luhn algorithm. Letters count as two digits, A is 10 and Z is 35, and the
+     * digits are walked from the right so that no digit string has to be built.
+     * @param isinCode code that has a valid format.
+     */
+    public static boolean hasValidCheckDigit(String isinCode) {
+        int sum = 0;
+        boolean doubled = false;
+        for (int i = isinCode.length() - 1; i >= 0; i--) {
+            int value = Character.digit(isinCode.charAt(i), 36);
+            if (value > 9) {
+                sum += luhnDigit(value % 10, doubled);
+                doubled = !doubled;
+                value /= 10;
+            }
+            sum += luhnDigit(value, doubled);
+            doubled = !doubled;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static int luhnDigit(int digit, boolean doubled) {
+        if (!doubled) {
+            return digit;
+        }
+        return digit * 2 > 9 ? digit * 2 - 9 : digit * 2;
+    }
+}
@@ -1,86 +1,69 @@
 package niilo.investment.validators;
 
 import niilo.investment.sharedata.ShareData;
-import niilo.investment.sharedata.ShareDataRepository;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
-import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class ShareDataValidator {
 
-    @Autowired
-    private ShareDataRepository shareDataRepository;
-
     /**
-     * Validates all the shareData fields.
+     * Validates all the shareData fields. Share data of a security that is in the catalog already is valid too,
+     * the stock will point to the catalog entry with the same ISIN code.
      * @param shareData Share data to be validated.
      */
     public void validateShareData(ShareData shareData) {
-        validateShareDataId(shareData);
-        validateShareDataCompanyName(shareData);
-        validateShareDataShareName(shareData);
-        validateShareDataISINCode(shareData);
-        validateShareDataCountry(shareData);
-        validateShareDataFieldOfEconomicActivity(shareData);
-
+        List<ValidationError> errors = new ArrayList<>();
+        findErrors(shareData, 1, errors);
+        ValidationError.rejectIfAny(errors);
     }
 
     /**
-     * Validates the field of economic activity.
-     *
+     * Checks all the shareData fields without throwing, every failing field adds an error.
+     * @param shareData Share data to be validated.
+     * @param stockNumber number of the stock in its batch.
+     * @param errors where the errors are added.
      */
-    private void validateShareDataFieldOfEconomicActivity(ShareData shareData) {
-        if (shareData.getFieldOfEconomicActivity() == null || shareData.getFieldOfEconomicActivity().isBlank()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Share data field of economic activity is missing");
+    public void findErrors(ShareData shareData, int stockNumber, List<ValidationError> errors) {
+        if (shareData == null) {
+            errors.add(new ValidationError(stockNumber, "shareData", "Share data is missing"));
+            return;
         }
-    }
-    /**
-     * Validates the country.
-     *
-     */
-    private void validateShareDataCountry(ShareData shareData) {
-        if (shareData.getCountry() == null || shareData.getCountry().isBlank()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Share data country is missing");
+        if (isBlank(shareData.getCompanyName())) {
+            errors.add(new ValidationError(stockNumber, "shareData.companyName", "Share data company name is missing"));
         }
-    }
-    /**
-     * Validates the ISIN code of the share data.
-     *
-     */
-    private void validateShareDataISINCode(ShareData shareData) {
-        if(shareData.getShareISINCode() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Share data ISIN code is missing");
-        } else if (!shareData.getShareISINCode().matches("[A-Z]{2}[A-Z0-9]{9}[0-9]")) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Share data ISIN code is not matching with standard");
+        if (isBlank(shareData.getShareName())) {
+            errors.add(new ValidationError(stockNumber, "shareData.shareName", "Share data share name is missing"));
         }
-    }
-    /**
-     * Validates the id of the share data.
-     *
-     */
-    private void validateShareDataId(ShareData shareData) {
-        if (shareDataRepository.existsById(shareData.getId())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Share data ID already exists in database");
+        findISINCodeErrors(shareData.getShareISINCode(), stockNumber, errors);
+        if (isBlank(shareData.getCountry())) {
+            errors.add(new ValidationError(stockNumber, "shareData.country", "Share data country is missing"));
         }
-    }
-    /**
-     * Validates the company name.
-     *
-     */
-    private void validateShareDataCompanyName(ShareData shareData) {
-        if (shareData.getCompanyName() == null || shareData.getCompanyName().isBlank()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Share data company name is missing");
+        if (isBlank(shareData.getFieldOfEconomicActivity())) {
+            errors.add(new ValidationError(stockNumber, "shareData.fieldOfEconomicActivity",
+                    "Share data field of economic activity is missing"));
         }
     }
+
     /**
-     * Validates the shares name.
+     * Validates the ISIN code of the share data.
      *
      */
-    private void validateShareDataShareName(ShareData shareData) {
-        if (shareData.getShareName() == null || shareData.getShareName().isBlank()) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Share data share name is missing");
+    private void findISINCodeErrors(String isinCode, int stockNumber, List<ValidationError> errors) {
+        if (isinCode == null) {
+            errors.add(new ValidationError(stockNumber, "shareData.shareISINCode", "Share data ISIN code is missing"));
+        } else if (!IsinCode.hasValidFormat(isinCode)) {
+            errors.add(new ValidationError(stockNumber, "shareData.shareISINCode",
+                    "Share data ISIN code is not matching with standard"));
+        } else if (!IsinCode.hasValidCheckDigit(isinCode)) {
+            errors.add(new ValidationError(stockNumber, "shareData.shareISINCode",
+                    "Share data ISIN code check digit is wrong"));
         }
     }
+
+    private boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
 }
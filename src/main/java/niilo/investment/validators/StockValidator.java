@@ -1,5 +1,6 @@
 package niilo.investment.validators;
 
+import niilo.investment.employee.Employee;
 import niilo.investment.stock.Stock;
 import niilo.investment.stock.StockRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,7 +9,12 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Component
 public class StockValidator {
@@ -28,77 +34,121 @@ public class StockValidator {
      * @return if stock is valid returns it.
      */
     public Stock isStockValid(Stock stock) {
-        validateStockId(stock);
-        validateStockPricePerShare(stock);
-        validateStockVolumeAcquired(stock);
-        validateStockDate(stock);
-        employeeValidator.validateEmployee(stock.getEmployee());
-        shareDataValidator.validateShareData(stock.getShareData());
+        List<Stock> stocks = List.of(stock);
+        ValidationError.rejectIfAny(findErrors(stocks, stockRepository::existsById, findExistingEmployeeIds(stocks)));
         return stock;
     }
 
     /**
-     * validates the stock date.
+     * Validates multiple stocks all at once. If there are problems, all of them are reported with the numbers of the
+     * problematic stocks.
      *
      */
-    private void validateStockDate(Stock stock) {
-        if (stock.getDate() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Stock date is missing");
+    public List<Stock> validateAllStocks(List<Stock> stocks) {
+        List<ValidationError> errors = findErrors(stocks);
+        if (!errors.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ValidationError.describe(errors));
+        }
+        return new ArrayList<>(stocks);
+    }
+
+    /**
+     * Checks all the fields of all the stocks in one pass without throwing. Stock and employee ids of the whole
+     * batch are looked up with one query per table.
+     * @param stocks stocks to be validated.
+     * @return every failed check, in the order of the stocks; empty if all the stocks are valid.
+     */
+    public List<ValidationError> findErrors(List<Stock> stocks) {
+        return findErrors(stocks, findExistingStockIds(stocks)::contains, findExistingEmployeeIds(stocks));
+    }
+
+    private List<ValidationError> findErrors(List<Stock> stocks, Predicate<Long> stockExists,
+                                             Set<Long> existingEmployeeIds) {
+        List<ValidationError> errors = new ArrayList<>();
+        Set<Long> batchStockIds = new HashSet<>();
+        for (int i = 0; i < stocks.size(); i++) {
+            Stock stock = stocks.get(i);
+            int stockNumber = i + 1;
+            findStockIdErrors(stock, stockNumber, stockExists, batchStockIds, errors);
+            findStockPricePerShareErrors(stock, stockNumber, errors);
+            findStockVolumeAcquiredErrors(stock, stockNumber, errors);
+            findStockTotalPriceErrors(stock, stockNumber, errors);
+            if (stock.getDate() == null) {
+                errors.add(new ValidationError(stockNumber, "date", "Stock date is missing"));
+            }
+            employeeValidator.findErrors(stock.getEmployee(), stockNumber, existingEmployeeIds::contains, errors);
+            shareDataValidator.findErrors(stock.getShareData(), stockNumber, errors);
         }
+        return errors;
     }
+
     /**
-     * validates the stock id.
+     * validates the stock id and that it is used only once in the batch.
      *
      */
-    private void validateStockId(Stock stock) {
+    private void findStockIdErrors(Stock stock, int stockNumber, Predicate<Long> stockExists, Set<Long> batchStockIds,
+                                   List<ValidationError> errors) {
         if (stock.getId() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock ID is missing");
+            errors.add(new ValidationError(stockNumber, "id", "Stock ID is missing"));
         } else if (stock.getId() < 1) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock ID can not be smaller than 1");
-        } else if (stockRepository.existsById(stock.getId())) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Purchase with this ID has been done already");
+            errors.add(new ValidationError(stockNumber, "id", "Stock ID can not be smaller than 1"));
+        } else if (stockExists.test(stock.getId())) {
+            errors.add(new ValidationError(stockNumber, "id", "Purchase with this ID has been done already"));
+        } else if (!batchStockIds.add(stock.getId())) {
+            errors.add(new ValidationError(stockNumber, "id", "Stock ID is repeated in the batch"));
         }
     }
     /**
      * validates the stock's share price.
      *
      */
-    private void validateStockPricePerShare(Stock stock) {
+    private void findStockPricePerShareErrors(Stock stock, int stockNumber, List<ValidationError> errors) {
         if (stock.getPricePerShare() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock price per share is missing");
+            errors.add(new ValidationError(stockNumber, "pricePerShare", "Stock price per share is missing"));
         } else if (!(stock.getPricePerShare() > 0)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock price per share has to be bigger than zero");
+            errors.add(new ValidationError(stockNumber, "pricePerShare",
+                    "Stock price per share has to be bigger than zero"));
         }
     }
     /**
      * validates the stocks volume.
      *
      */
-    private void validateStockVolumeAcquired(Stock stock) {
+    private void findStockVolumeAcquiredErrors(Stock stock, int stockNumber, List<ValidationError> errors) {
         if (stock.getVolumeAcquired() == null) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock volume acquired is missing");
+            errors.add(new ValidationError(stockNumber, "volumeAcquired", "Stock volume acquired is missing"));
         } else if (!(stock.getVolumeAcquired() > 0)) {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Stock volume acquired has to be bigger than zero");
+            errors.add(new ValidationError(stockNumber, "volumeAcquired",
+                    "Stock volume acquired has to be bigger than zero"));
         }
     }
     /**
-     * Validates multiple stocks all at once. If there is a problem, it returns the number of the problematic stock.
+     * validates that the cost of the purchase fits in the minor units of Money.
      *
      */
-    public List<Stock> validateAllStocks(List<Stock> stocks) {
-        int problematicEntryNumber = 0;
-        List<Stock> validStocks = new ArrayList<>();
-        for (int i = 0; i < stocks.size(); i++) {
-            Stock stock = stocks.get(i);
-            problematicEntryNumber = i + 1;
-            try {
-                Stock validStock = isStockValid(stock);
-                validStocks.add(validStock);
-            } catch (ResponseStatusException exception) {
-                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,"Problem with Stock nr " + problematicEntryNumber
-                        + " " + exception.getReason());
-            }
+    private void findStockTotalPriceErrors(Stock stock, int stockNumber, List<ValidationError> errors) {
+        Long price = stock.getPricePerShare();
+        Long volume = stock.getVolumeAcquired();
+        if (price != null && price > 0 && volume != null && volume > 0 && price > Long.MAX_VALUE / volume) {
+            errors.add(new ValidationError(stockNumber, "pricePerShare", "Stock total price is too large"));
+        }
+    }
+
+    /**
+     * Looks up with a single query which of the stock ids are in the database already.
+     *
+     */
+    private Set<Long> findExistingStockIds(List<Stock> stocks) {
+        Set<Long> stockIds = stocks.stream().map(Stock::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+        if (stockIds.isEmpty()) {
+            return Set.of();
         }
-        return validStocks;
+        return new HashSet<>(stockRepository.findExistingIds(stockIds));
+    }
+
+    private Set<Long> findExistingEmployeeIds(List<Stock> stocks) {
+        return employeeValidator.findExistingEmployeeIds(stocks.stream()
+                .map(Stock::getEmployee).filter(Objects::nonNull)
+                .map(Employee::getId).filter(Objects::nonNull).collect(Collectors.toSet()));
     }
 }
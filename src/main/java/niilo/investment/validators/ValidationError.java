@@ -0,0 +1,51 @@
+package niilo.investment.validators;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+
+/**
+ * A failed check of a stock. Validators add these to a list instead of throwing, so a whole batch is checked in one
+ * pass and every problem is reported at once.
+ */
+@Data
+@AllArgsConstructor
+public class ValidationError {
+
+    /**
+     * Number of the stock in the batch, counted from 1.
+     */
+    private int stockNumber;
+    /**
+     * JSON path of the field that failed the check, like shareData.shareISINCode.
+     */
+    private String field;
+    private String message;
+
+    /**
+     * Tells the client about the first error, the way a single stock has always been rejected.
+     */
+    static void rejectIfAny(List<ValidationError> errors) {
+        if (!errors.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, errors.get(0).getMessage());
+        }
+    }
+
+    /**
+     * Describes the errors of a batch, one "Problem with Stock nr" entry per error.
+     */
+    public static String describe(List<ValidationError> errors) {
+        StringBuilder description = new StringBuilder();
+        for (ValidationError error : errors) {
+            if (!description.isEmpty()) {
+                description.append("; ");
+            }
+            description.append("Problem with Stock nr ").append(error.getStockNumber())
+                    .append(' ').append(error.getMessage());
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package niilo.investment.analytics;
+
+import niilo.investment.employee.Employee;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.statistics.MonthlyTotal;
+import niilo.investment.stock.Stock;
+import niilo.investment.stock.StocksSavedEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MonthlyCostAccumulatorTest {
+
+    private final ShareData shareData = new ShareData(1L, "First Company", "FCPY",
+            "EEFE4592FA93", "Estonia", "Financial");
+
+    private final MonthlyCostAccumulator monthlyCostAccumulator = new MonthlyCostAccumulator();
+
+    @Test
+    void monthsOfDifferentYearsAreAddedTogether() {
+        monthlyCostAccumulator.stocksSaved(new StocksSavedEvent(List.of(
+                new Stock(1L, shareData, 125_000L, 5L, LocalDate.of(2022, 4, 11), new Employee(1L)),
+                new Stock(2L, shareData, 75_000L, 50L, LocalDate.of(2021, 4, 2), new Employee(2L)),
+                new Stock(3L, shareData, 105_000L, 2L, LocalDate.of(2022, 12, 8), new Employee(1L)))));
+        assertThat(monthlyCostAccumulator.sumCostGroupedByMonth()).containsExactly(
+                new MonthlyTotal(4, 4_375_000L),
+                new MonthlyTotal(12, 210_000L));
+        assertThat(monthlyCostAccumulator.sumCostOfEmployeeGroupedByMonth(1L)).containsExactly(
+                new MonthlyTotal(4, 625_000L),
+                new MonthlyTotal(12, 210_000L));
+        assertThat(monthlyCostAccumulator.sumCostOfEmployeeGroupedByMonth(3L)).isEmpty();
+    }
+
+    @Test
+    void concurrentCommitsAreAllCounted() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (long id = 1; id <= 1000; id++) {
+            Stock stock = new Stock(id, shareData, 10_000L, 1L, LocalDate.of(2022, 1, 1), new Employee(id % 4));
+            executor.execute(() -> monthlyCostAccumulator.stocksSaved(new StocksSavedEvent(List.of(stock))));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(monthlyCostAccumulator.sumCostGroupedByMonth()).containsExactly(new MonthlyTotal(1, 10_000_000L));
+    }
+}
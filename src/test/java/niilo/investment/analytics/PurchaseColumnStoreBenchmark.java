@@ -0,0 +1,198 @@
+package niilo.investment.analytics;
+
+import jakarta.persistence.EntityManager;
+import niilo.investment.employee.Employee;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.statistics.MonthlyStockDTO;
+import niilo.investment.statistics.MonthlyTotal;
+import niilo.investment.stock.Stock;
+import niilo.investment.stock.StockRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntFunction;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares the monthly reports of the column store with the JPA queries on the stocks table they replace, and the
+ * scan speed of the column store on 1 to 32 threads, run with
+ * ./mvnw test -Dtest=PurchaseColumnStoreBenchmark -Dbenchmark=true
+ * <p>
+ * repositoryAgainstColumns on a single core Xeon VM with JDK 17 and in-memory H2, 500,000 stocks: monthly totals
+ * take 655.9 ms with the JPQL group by on stocks and 2.8 ms on the columns, 235x. The stocks of a month take
+ * 218.3 ms through the month index and 84.2 ms on the columns, 2.6x. The columns hold 92 bytes/row, including the
+ * spare capacity of the grown arrays.
+ * <p>
+ * parallelScanScaling on the same VM, in rows/s against 298M sequential:
+ * 1 thread 323M (1.08x), 2 threads 297M (1.00x), 4 threads 263M (0.88x), 8 threads 282M (0.94x),
+ * 16 threads 279M (0.94x), 32 threads 199M (0.67x). With one core the threads only add splitting and scheduling
+ * overhead, the speedup has to be measured again on a machine with more cores.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PurchaseColumnStoreBenchmark {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PurchaseColumnStoreBenchmark.class);
+    private static final int ROWS = 2_000_000;
+    private static final int SCANS = 20;
+    private static final int DATABASE_ROWS = 500_000;
+    private static final int QUERIES = 10;
+
+    /**
+     * The monthly totals the way they were read from the stocks table before the rollup and the column store.
+     */
+    private static final String SUM_COST_GROUPED_BY_MONTH = "select new niilo.investment.statistics.MonthlyTotal("
+            + "s.purchaseMonth, sum(s.pricePerShare * s.volumeAcquired)) from Stock s where s.id <> :run "
+            + "group by s.purchaseMonth";
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    StockRepository stockRepository;
+    @Autowired
+    AutowireCapableBeanFactory beanFactory;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM stocks");
+        jdbcTemplate.update("DELETE FROM share_data");
+        jdbcTemplate.update("DELETE FROM employee");
+    }
+
+    @Test
+    void repositoryAgainstColumns() {
+        jdbcTemplate.batchUpdate("INSERT INTO employee (id) VALUES (?)",
+                LongStream.rangeClosed(1, 100).boxed().toList(), 100,
+                (statement, id) -> statement.setLong(1, id));
+        jdbcTemplate.batchUpdate("INSERT INTO share_data (id, company_name, share_name, share_isin_code, country, "
+                        + "field_of_economic_activity) VALUES (?, ?, ?, ?, 'Estonia', 'IT')",
+                LongStream.rangeClosed(1, 500).boxed().toList(), 500, (statement, id) -> {
+                    statement.setLong(1, id);
+                    statement.setString(2, "Company " + id);
+                    statement.setString(3, "C" + id);
+                    statement.setString(4, "EE%09d0".formatted(id));
+                });
+        jdbcTemplate.batchUpdate("INSERT INTO stocks (id, share_data_id, price_per_share, volume_acquired, date, "
+                        + "purchase_month, employee_id) VALUES (?, ?, ?, 5, ?, ?, ?)",
+                LongStream.rangeClosed(1, DATABASE_ROWS).boxed().toList(), 1000, (statement, id) -> {
+                    LocalDate date = LocalDate.of(2022, 1, 1).plusDays(id % 365);
+                    statement.setLong(1, id);
+                    statement.setLong(2, id % 500 + 1);
+                    statement.setLong(3, 125_000L + id % 1000);
+                    statement.setObject(4, date);
+                    statement.setInt(5, date.getMonthValue());
+                    statement.setLong(6, id % 100 + 1);
+                });
+
+        long before = usedMemory();
+        PurchaseColumnStore store = beanFactory.createBean(PurchaseColumnStore.class);
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.invokeMethod(store, "load");
+        long columnBytes = usedMemory() - before;
+        LOGGER.info("Column store: {} bytes/row", columnBytes / DATABASE_ROWS);
+
+        assertThat(store.sumCostGroupedByMonth(null)).containsExactlyInAnyOrderElementsOf(sumCostWithJpa(0));
+        compare("Monthly totals", this::sumCostWithJpa, run -> store.sumCostGroupedByMonth(null));
+        compare("Stocks of a month", run -> transactionTemplate.execute(status -> {
+            try (Stream<MonthlyStockDTO> stocks = stockRepository.streamMonthlyStocksOfMonth(run % 12 + 1)) {
+                return stocks.toList();
+            }
+        }), run -> store.findStocks(null, Month.of(run % 12 + 1)));
+    }
+
+    @Test
+    void parallelScanScaling() {
+        PurchaseColumnStore store = new PurchaseColumnStore();
+        ReflectionTestUtils.setField(store, "enabled", true);
+        List<Stock> stocks = new ArrayList<>(ROWS);
+        ShareData shareData = new ShareData(1L, "Company", "C", "EE0000000010", "Estonia", "IT");
+        for (long id = 1; id <= ROWS; id++) {
+            stocks.add(new Stock(id, shareData, 125_000L + id % 1000, 5L,
+                    LocalDate.of(2022, 1, 1).plusDays(id % 365), new Employee(id % 100 + 1)));
+        }
+        store.add(stocks);
+        stocks = null;
+
+        double sequentialRowsPerSecond = rowsPerSecond(store, null);
+        LOGGER.info("Sequential: {} rows/s", "%.0f".formatted(sequentialRowsPerSecond));
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                double parallelRowsPerSecond = rowsPerSecond(store, pool);
+                LOGGER.info("{} threads: {} rows/s, {}x", threads, "%.0f".formatted(parallelRowsPerSecond),
+                        "%.2f".formatted(parallelRowsPerSecond / sequentialRowsPerSecond));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private double rowsPerSecond(PurchaseColumnStore store, ForkJoinPool pool) {
+        store.sumCostGroupedByMonth(null, pool);
+        long start = System.nanoTime();
+        for (int scan = 0; scan < SCANS; scan++) {
+            store.sumCostGroupedByMonth(null, pool);
+        }
+        return (double) ROWS * SCANS / ((System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * H2 hands out the last result again when a statement is run with the same parameters on an unchanged table, so
+     * every run excludes a different stock id that does not exist.
+     */
+    private List<MonthlyTotal> sumCostWithJpa(int run) {
+        return transactionTemplate.execute(status -> entityManager
+                .createQuery(SUM_COST_GROUPED_BY_MONTH, MonthlyTotal.class)
+                .setParameter("run", -1L - run)
+                .getResultList());
+    }
+
+    /**
+     * Logs the milliseconds a query takes on the database and on the columns, after two warm up runs.
+     */
+    private void compare(String query, IntFunction<?> jpa, IntFunction<?> columns) {
+        double jpaMillis = millisPerQuery(jpa);
+        double columnMillis = millisPerQuery(columns);
+        LOGGER.info("{}: JPA {} ms, columns {} ms, {}x", query, "%.1f".formatted(jpaMillis),
+                "%.1f".formatted(columnMillis), "%.1f".formatted(jpaMillis / columnMillis));
+    }
+
+    private double millisPerQuery(IntFunction<?> query) {
+        query.apply(QUERIES);
+        query.apply(QUERIES + 1);
+        long start = System.nanoTime();
+        for (int run = 0; run < QUERIES; run++) {
+            query.apply(run);
+        }
+        return (System.nanoTime() - start) / 1e6 / QUERIES;
+    }
+
+    private long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
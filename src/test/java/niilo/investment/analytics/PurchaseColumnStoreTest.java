@@ -0,0 +1,113 @@
+package niilo.investment.analytics;
+
+import niilo.investment.employee.Employee;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.sharedata.ShareDataRepository;
+import niilo.investment.statistics.MonthlyTotal;
+import niilo.investment.stock.Stock;
+import niilo.investment.stock.StocksSavedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static niilo.investment.statistics.StatisticsFixtures.monthlyStock;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+class PurchaseColumnStoreTest {
+
+    private final ShareData shareData = new ShareData(1L, "First Company", "FCPY",
+            "EEFE4592FA93", "Estonia", "Financial");
+    private final Stock stock1 = new Stock(1L, shareData, 125_000L, 5L, LocalDate.of(2022, 4, 11), new Employee(1L));
+    private final Stock stock2 = new Stock(2L, shareData, 105_000L, 2L, LocalDate.of(2021, 12, 8), new Employee(2L));
+    private final Stock stock3 = new Stock(3L, shareData, 75_000L, 50L, LocalDate.of(2022, 4, 2), new Employee(1L));
+
+    @Mock
+    ShareDataRepository shareDataRepository;
+    @InjectMocks
+    PurchaseColumnStore purchaseColumnStore;
+
+    @BeforeEach
+    public void setUp() {
+        openMocks(this);
+        ReflectionTestUtils.setField(purchaseColumnStore, "enabled", true);
+        when(shareDataRepository.findAllById(anyIterable())).thenReturn(List.of(shareData));
+    }
+
+    @Test
+    void addsSavedStocks() {
+        purchaseColumnStore.stocksSaved(new StocksSavedEvent(List.of(stock1, stock2)));
+        assertThat(purchaseColumnStore.size()).isEqualTo(2);
+    }
+
+    @Test
+    void sumsCostsByMonth() {
+        purchaseColumnStore.add(List.of(stock1, stock2, stock3));
+        assertThat(purchaseColumnStore.sumCostGroupedByMonth(null)).containsExactly(
+                new MonthlyTotal(4, 4_375_000L),
+                new MonthlyTotal(12, 210_000L));
+        assertThat(purchaseColumnStore.sumCostGroupedByMonth(2L)).containsExactly(
+                new MonthlyTotal(12, 210_000L));
+    }
+
+    @Test
+    void findsStocksOrderedByDate() {
+        purchaseColumnStore.add(List.of(stock1, stock2, stock3));
+        assertThat(purchaseColumnStore.findStocks(null, null)).containsExactly(
+                monthlyStock(stock2), monthlyStock(stock3), monthlyStock(stock1));
+        assertThat(purchaseColumnStore.findStocks(1L, Month.APRIL)).containsExactly(
+                monthlyStock(stock3), monthlyStock(stock1));
+        assertThat(purchaseColumnStore.findStocks(2L, Month.APRIL)).isEmpty();
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        List<Stock> stocks = new ArrayList<>();
+        for (long id = 1; id <= 5000; id++) {
+            stocks.add(new Stock(id, shareData, 10_000L, 1L, LocalDate.of(2022, 1, 1), new Employee(1L)));
+        }
+        purchaseColumnStore.add(stocks);
+        assertThat(purchaseColumnStore.sumCostGroupedByMonth(1L)).containsExactly(new MonthlyTotal(1, 50_000_000L));
+    }
+
+    @Test
+    void parallelSumsAreTheSameAsSequentialSums() {
+        List<Stock> stocks = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            stocks.add(new Stock(id, shareData, 10_000L + id % 7, id % 3 + 1,
+                    LocalDate.of(2022, (int) (id % 12) + 1, 1), new Employee(id % 10)));
+        }
+        purchaseColumnStore.add(stocks);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertThat(purchaseColumnStore.sumCostGroupedByMonth(null, pool))
+                    .isEqualTo(purchaseColumnStore.sumCostGroupedByMonth(null, null))
+                    .hasSize(12);
+            assertThat(purchaseColumnStore.sumCostGroupedByMonth(3L, pool))
+                    .isEqualTo(purchaseColumnStore.sumCostGroupedByMonth(3L, null));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void sumsAreRightOnBothSidesOfTheParallelThreshold() {
+        ReflectionTestUtils.setField(purchaseColumnStore, "parallelThreshold", 2);
+        purchaseColumnStore.add(List.of(stock1));
+        assertThat(purchaseColumnStore.sumCostGroupedByMonth(null)).containsExactly(new MonthlyTotal(4, 625_000L));
+        purchaseColumnStore.add(List.of(stock2, stock3));
+        assertThat(purchaseColumnStore.sumCostGroupedByMonth(null)).containsExactly(
+                new MonthlyTotal(4, 4_375_000L),
+                new MonthlyTotal(12, 210_000L));
+    }
+}
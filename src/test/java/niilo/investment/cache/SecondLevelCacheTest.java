@@ -0,0 +1,125 @@
+package niilo.investment.cache;
+
+import jakarta.persistence.EntityManagerFactory;
+import niilo.investment.employee.Employee;
+import niilo.investment.employee.EmployeeRepository;
+import niilo.investment.rollup.MonthlyEmployeeTotalRepository;
+import niilo.investment.rollup.MonthlyTotalsRollup;
+import niilo.investment.service.Service;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.sharedata.ShareDataRepository;
+import niilo.investment.statistics.MonthlyTotal;
+import niilo.investment.stock.Stock;
+import niilo.investment.stock.StockRepository;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "investment.cache.statistics.enabled=true")
+class SecondLevelCacheTest {
+
+    @Autowired
+    Service service;
+    @Autowired
+    CacheRegions cacheRegions;
+    @Autowired
+    StockRepository stockRepository;
+    @Autowired
+    EmployeeRepository employeeRepository;
+    @Autowired
+    ShareDataRepository shareDataRepository;
+    @Autowired
+    MonthlyEmployeeTotalRepository monthlyEmployeeTotalRepository;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        employeeRepository.save(new Employee(1L));
+        service.addStockToRepository(new Stock(1L, shareData(), 125_000L, 5L, LocalDate.of(2022, 4, 11),
+                new Employee(1L)));
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stockRepository.deleteAll();
+        monthlyEmployeeTotalRepository.deleteAll();
+        shareDataRepository.deleteAll();
+        employeeRepository.deleteAll();
+    }
+
+    @Test
+    void cachedAssociationsAreNotSelected() {
+        loadStockWithDetails();
+        statistics.clear();
+        loadStockWithDetails();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(2);
+    }
+
+    @Test
+    void evictedAssociationsAreSelected() {
+        entityManagerFactory.getCache().evictAll();
+        loadStockWithDetails();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        statistics.clear();
+        loadStockWithDetails();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void totalsAreReadFromTheQueryCacheUntilStocksAreSaved() {
+        MonthlyTotal april = new MonthlyTotal(4, 625_000L);
+        assertThat(monthlyEmployeeTotalRepository.sumCostGroupedByMonth()).containsExactly(april);
+        assertThat(monthlyEmployeeTotalRepository.sumCostGroupedByMonth()).containsExactly(april);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        service.addStockToRepository(new Stock(2L, shareData(), 10_000L, 1L, LocalDate.of(2022, 4, 20),
+                new Employee(1L)));
+        assertThat(monthlyEmployeeTotalRepository.sumCostGroupedByMonth())
+                .containsExactly(new MonthlyTotal(4, 635_000L));
+    }
+
+    @Test
+    void regionStatisticsAreReported() {
+        loadStockWithDetails();
+        monthlyEmployeeTotalRepository.sumCostGroupedByMonth();
+        assertThat(cacheRegions.statistics())
+                .extracting(RegionStatistics::getRegion)
+                .contains(Employee.class.getName(), ShareData.class.getName(),
+                        MonthlyTotalsRollup.QUERY_CACHE_REGION);
+        assertThat(cacheRegions.statistics())
+                .filteredOn(region -> region.getRegion().equals(ShareData.class.getName()))
+                .extracting(RegionStatistics::getHits)
+                .containsExactly(1L);
+    }
+
+    private void loadStockWithDetails() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Stock stock = stockRepository.findById(1L).orElseThrow();
+            Hibernate.initialize(stock.getShareData());
+            Hibernate.initialize(stock.getEmployee());
+        });
+    }
+
+    private ShareData shareData() {
+        return new ShareData(null, "First Company", "FCPY", "EEFE4592FA93", "Estonia", "Financial");
+    }
+}
@@ -0,0 +1,42 @@
+package niilo.investment.employee;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class EmployeeCacheListenerTest {
+
+    @Autowired
+    EmployeeCache employeeCache;
+    @Autowired
+    EmployeeRepository employeeRepository;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void tearDown() {
+        employeeRepository.deleteAll();
+    }
+
+    @Test
+    void committedEmployeeIsCached() {
+        transactionTemplate.executeWithoutResult(status -> employeeRepository.saveAndFlush(new Employee(7L)));
+        long misses = employeeCache.statistics().getMisses();
+        assertThat(employeeCache.exists(7L)).isTrue();
+        assertThat(employeeCache.statistics().getMisses()).isEqualTo(misses);
+    }
+
+    @Test
+    void rolledBackEmployeeIsNotCached() {
+        transactionTemplate.executeWithoutResult(status -> {
+            employeeRepository.saveAndFlush(new Employee(8L));
+            status.setRollbackOnly();
+        });
+        assertThat(employeeCache.exists(8L)).isFalse();
+    }
+}
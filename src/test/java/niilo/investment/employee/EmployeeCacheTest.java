@@ -0,0 +1,82 @@
+package niilo.investment.employee;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+class EmployeeCacheTest {
+
+    @Mock
+    EmployeeRepository employeeRepository;
+    @InjectMocks
+    EmployeeCache employeeCache;
+
+    @BeforeEach
+    public void setUp() {
+        openMocks(this);
+        ReflectionTestUtils.setField(employeeCache, "maxSize", 2);
+        ReflectionTestUtils.setField(employeeCache, "ttlSeconds", 600L);
+        when(employeeRepository.findExistingIds(anyCollection())).thenAnswer(invocation ->
+                invocation.<List<Long>>getArgument(0).stream().filter(id -> id < 100).toList());
+    }
+
+    @Test
+    void knownEmployeeIsLookedUpOnlyOnce() {
+        assertThat(employeeCache.exists(1L)).isTrue();
+        assertThat(employeeCache.exists(1L)).isTrue();
+        verify(employeeRepository, times(1)).findExistingIds(List.of(1L));
+        assertThat(employeeCache.statistics()).isEqualTo(new EmployeeCacheStatistics(1, 1, 1, 2));
+    }
+
+    @Test
+    void missingEmployeeIsLookedUpAgain() {
+        assertThat(employeeCache.exists(100L)).isFalse();
+        assertThat(employeeCache.exists(100L)).isFalse();
+        verify(employeeRepository, times(2)).findExistingIds(List.of(100L));
+    }
+
+    @Test
+    void onlyNotCachedIdsAreQueried() {
+        employeeCache.put(1L);
+        assertThat(employeeCache.findExisting(List.of(1L, 2L, 100L))).containsExactlyInAnyOrder(1L, 2L);
+        verify(employeeRepository).findExistingIds(List.of(2L, 100L));
+    }
+
+    @Test
+    void leastRecentlyUsedEmployeeIsDroppedWhenFull() {
+        employeeCache.put(1L);
+        employeeCache.put(2L);
+        employeeCache.exists(1L);
+        employeeCache.put(3L);
+        assertThat(employeeCache.statistics().getSize()).isEqualTo(2);
+        employeeCache.exists(2L);
+        verify(employeeRepository).findExistingIds(List.of(2L));
+    }
+
+    @Test
+    void expiredEmployeeIsLookedUpAgain() {
+        ReflectionTestUtils.setField(employeeCache, "ttlSeconds", 0L);
+        employeeCache.put(1L);
+        assertThat(employeeCache.exists(1L)).isTrue();
+        verify(employeeRepository).findExistingIds(List.of(1L));
+    }
+
+    @Test
+    void evictedEmployeeIsLookedUpAgain() {
+        employeeCache.put(1L);
+        employeeCache.evict(1L);
+        employeeCache.exists(1L);
+        verify(employeeRepository).findExistingIds(List.of(1L));
+    }
+}
@@ -0,0 +1,71 @@
+package niilo.investment.ingest;
+
+import niilo.investment.employee.Employee;
+import niilo.investment.employee.EmployeeRepository;
+import niilo.investment.stock.PurchaseTotal;
+import niilo.investment.stock.StockRepository;
+import niilo.investment.stock.StocksSavedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Transactional
+@RecordApplicationEvents
+class CsvStockImporterTest {
+
+    private static final String HEADER = "id,employee_id,company_name,share_name,share_isin_code,country,"
+            + "field_of_economic_activity,price_per_share,volume_acquired,purchase_date\n";
+
+    @Autowired
+    CsvStockImporter csvStockImporter;
+    @Autowired
+    EmployeeRepository employeeRepository;
+    @Autowired
+    StockRepository stockRepository;
+    @Autowired
+    ApplicationEvents applicationEvents;
+
+    @Test
+    void validRowsAreSavedAndInvalidRowsAreRejected() throws Exception {
+        employeeRepository.saveAndFlush(new Employee(1L));
+        String csv = HEADER
+                + "1,1,First Company,FCPY,EEFE4592FA93,Estonia,Financial,12.5,5,2022-04-11\n"
+                + "2,7,Another Company,ACPY,LVFE2562FA93,Latvia,Timber,10.5,2,2022-12-08\n"
+                + "3,1,Third Company,THPY,LTFE4592FA97,Lithuania,Education,7.5,50,\n"
+                + "1,1,First Company,FCPY,EEFE4592FA93,Estonia,Financial,12.5,5,2022-04-11\n"
+                + "5,1,Fifth Company,FIPY,EEFE4592FA96,Estonia,Financial,12.5,5,2022-04-11\n"
+                + "6,1,First Company,FCPY,EEFE4592FA93,Estonia,Financial,12.5,5,2022-02-30\n"
+                + "7,1,First Company,FCPY,EEFE4592FA93,Estonia,Financial,12.5,5,2022-13-01\n"
+                + "8,1,First Company,FCPY,EEFE4592FA93,Estonia,Financial,12.5,5,2022-04-00\n";
+
+        CsvImportResult result = csvStockImporter.importCsv(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(result.getImportedStocks()).isEqualTo(1);
+        assertThat(result.getRejectedStocks()).containsExactly(
+                new RejectedStock(2, "Employee not in the database"),
+                new RejectedStock(3, "Stock date is missing"),
+                new RejectedStock(4, "Stock ID is repeated in the batch"),
+                new RejectedStock(5, "Share data ISIN code check digit is wrong"),
+                new RejectedStock(6, "Stock date is not a yyyy-MM-dd date"),
+                new RejectedStock(7, "Stock date is not a yyyy-MM-dd date"),
+                new RejectedStock(8, "Stock date is not a yyyy-MM-dd date"));
+        assertThat(stockRepository.findById(1L)).hasValueSatisfying(stock -> {
+            assertThat(stock.getShareData().getShareISINCode()).isEqualTo("EEFE4592FA93");
+            assertThat(stock.getPurchaseMonth()).isEqualTo(4);
+            assertThat(stock.getPricePerShare()).isEqualTo(125_000L);
+        });
+        assertThat(applicationEvents.stream(StocksSavedEvent.class)).containsExactly(
+                new StocksSavedEvent(List.of(), List.of(new PurchaseTotal(1L, 2022, 4, 625_000L, 1L))));
+    }
+}
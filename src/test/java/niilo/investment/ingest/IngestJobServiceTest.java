@@ -0,0 +1,153 @@
+package niilo.investment.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import niilo.investment.employee.Employee;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.stock.Stock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Spy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+class IngestJobServiceTest {
+
+    @Spy
+    StockStreamImporter stockStreamImporter;
+    @InjectMocks
+    IngestJobService ingestJobService;
+
+    @BeforeEach
+    public void setUp() {
+        openMocks(this);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        ReflectionTestUtils.setField(stockStreamImporter, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(ingestJobService, "objectMapper", objectMapper);
+        ReflectionTestUtils.setField(ingestJobService, "threads", 1);
+        ReflectionTestUtils.setField(ingestJobService, "queueCapacity", 1);
+        ingestJobService.startExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ingestJobService.stopExecutor();
+    }
+
+    @Test
+    void jobReportsProgressOfAllChunks() throws Exception {
+        int size = StockStreamImporter.CHUNK_SIZE + 1;
+        List<Stock> stocks = new ArrayList<>();
+        for (long id = 1; id <= size; id++) {
+            stocks.add(new Stock(id, new ShareData(null, "First Company", "FCPY",
+                    "EEFE4592FA93", "Estonia", "Financial"),
+                    125_000L, 5L, LocalDate.of(2022, 4, 11), new Employee(1L)));
+        }
+        doReturn(new ChunkResult(1, 1, StockStreamImporter.CHUNK_SIZE, StockStreamImporter.CHUNK_SIZE, null))
+                .when(stockStreamImporter).importChunk(eq(1), eq(1), anyList());
+        doReturn(new ChunkResult(2, size, size, 0, "Problem with Stock nr 1 Stock date is missing"))
+                .when(stockStreamImporter).importChunk(eq(2), eq(size), anyList());
+
+        IngestJob job = ingestJobService.submit(stocks);
+        awaitFinished(job);
+
+        assertThat(ingestJobService.findJob(job.getId())).containsSame(job);
+        assertThat(job.getStatus()).isEqualTo(IngestJobStatus.DONE);
+        assertThat(job.getTotalStocks()).isEqualTo(size);
+        assertThat(job.getProcessedStocks()).isEqualTo(size);
+        assertThat(job.getSavedStocks()).isEqualTo(StockStreamImporter.CHUNK_SIZE);
+        assertThat(job.getErrors()).containsExactly("Stocks " + size + "-" + size
+                + " not saved: Problem with Stock nr 1 Stock date is missing");
+        assertThat(spooledPayloads()).isEmpty();
+    }
+
+    @Test
+    void queuedJobWaitsOnDiskUntilItRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new ChunkResult(1, 1, 1, 1, null);
+        }).when(stockStreamImporter).importChunk(anyInt(), anyInt(), anyList());
+        IngestJob running = ingestJobService.submit(List.of(new Stock()));
+        IngestJob queued = ingestJobService.submit(List.of(new Stock()));
+
+        assertThat(spooledPayloads()).hasSize(2);
+
+        release.countDown();
+        awaitFinished(running);
+        awaitFinished(queued);
+        assertThat(queued.getStatus()).isEqualTo(IngestJobStatus.DONE);
+        assertThat(spooledPayloads()).isEmpty();
+    }
+
+    @Test
+    void unexpectedErrorFailsTheJob() throws Exception {
+        doThrow(new IllegalStateException("database is down"))
+                .when(stockStreamImporter).importChunk(anyInt(), anyInt(), anyList());
+        IngestJob job = ingestJobService.submit(List.of(new Stock()));
+        awaitFinished(job);
+        assertThat(job.getStatus()).isEqualTo(IngestJobStatus.FAILED);
+        assertThat(job.getErrors()).containsExactly("Ingest stopped: database is down");
+    }
+
+    @Test
+    void jobIsKeptFromBeforeItRunsUntilItIsRejected() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> jobsSeenByRunningJob = new ArrayList<>();
+        doAnswer(invocation -> {
+            jobsSeenByRunningJob.add(jobs().size());
+            release.await(5, TimeUnit.SECONDS);
+            return new ChunkResult(1, 1, 1, 1, null);
+        }).when(stockStreamImporter).importChunk(anyInt(), anyInt(), anyList());
+        IngestJob running = ingestJobService.submit(List.of(new Stock()));
+        IngestJob queued = ingestJobService.submit(List.of(new Stock()));
+
+        assertThatThrownBy(() -> ingestJobService.submit(List.of(new Stock())))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Too many ingest jobs are waiting");
+        assertThat(jobs()).containsOnlyKeys(running.getId(), queued.getId());
+
+        release.countDown();
+        awaitFinished(queued);
+        assertThat(jobsSeenByRunningJob.get(0)).isPositive();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, IngestJob> jobs() {
+        return (Map<String, IngestJob>) ReflectionTestUtils.getField(ingestJobService, "jobs");
+    }
+
+    private List<Path> spooledPayloads() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+            return files.filter(file -> file.getFileName().toString().startsWith("ingest-job")).toList();
+        }
+    }
+
+    private void awaitFinished(IngestJob job) throws InterruptedException {
+        for (int i = 0; i < 500 && !job.isFinished(); i++) {
+            Thread.sleep(10);
+        }
+    }
+}
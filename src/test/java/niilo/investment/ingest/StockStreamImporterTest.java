@@ -0,0 +1,115 @@
+package niilo.investment.ingest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import niilo.investment.employee.Employee;
+import niilo.investment.service.Service;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.stock.Stock;
+import niilo.investment.validators.StockValidator;
+import niilo.investment.validators.ValidationError;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+class StockStreamImporterTest {
+
+    private final Stock stock1 = new Stock(1L,
+            new ShareData(1L, "First Company", "FCPY",
+                    "EEFE4592FA93", "Estonia", "Financial"),
+            125_000L, 5L, LocalDate.of(2022, 4, 11), new Employee(1L));
+    private final Stock stock2 = new Stock(2L,
+            new ShareData(2L, "Another Company", "ACPY",
+                    "LVFE2562FA93", "Latvia", "Timber"),
+            105_000L, 2L, LocalDate.of(2022, 12, 8), new Employee(2L));
+
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    @Mock
+    StockValidator stockValidator;
+    @Mock
+    Service service;
+    @InjectMocks
+    StockStreamImporter stockStreamImporter;
+
+    @BeforeEach
+    public void setUp() {
+        openMocks(this);
+        when(stockValidator.findErrors(anyList())).thenReturn(List.of());
+    }
+
+    @Test
+    void importsJsonArray() throws Exception {
+        String json = objectMapper.writeValueAsString(List.of(stock1, stock2));
+        List<ChunkResult> results = stockStreamImporter.importStocks(asStream(json));
+        assertThat(results).containsExactly(new ChunkResult(1, 1, 2, 2, null));
+        verify(service).addStocksToRepository(List.of(stock1, stock2));
+    }
+
+    @Test
+    void importsNewlineDelimitedJson() throws Exception {
+        String json = objectMapper.writeValueAsString(stock1) + "\n" + objectMapper.writeValueAsString(stock2) + "\n";
+        List<ChunkResult> results = stockStreamImporter.importStocks(asStream(json));
+        assertThat(results).containsExactly(new ChunkResult(1, 1, 2, 2, null));
+        verify(service).addStocksToRepository(List.of(stock1, stock2));
+    }
+
+    @Test
+    void importsInChunks() throws Exception {
+        List<Stock> stocks = new ArrayList<>();
+        for (long id = 1; id <= StockStreamImporter.CHUNK_SIZE + 1; id++) {
+            stocks.add(new Stock(id, stock1.getShareData(), 125_000L, 5L, LocalDate.of(2022, 4, 11), new Employee(1L)));
+        }
+        List<ChunkResult> results = stockStreamImporter.importStocks(asStream(objectMapper.writeValueAsString(stocks)));
+        assertThat(results).containsExactly(
+                new ChunkResult(1, 1, StockStreamImporter.CHUNK_SIZE, StockStreamImporter.CHUNK_SIZE, null),
+                new ChunkResult(2, StockStreamImporter.CHUNK_SIZE + 1, StockStreamImporter.CHUNK_SIZE + 1, 1, null));
+    }
+
+    @Test
+    void invalidChunkIsReportedAndNotSaved() throws Exception {
+        when(stockValidator.findErrors(anyList())).thenReturn(
+                List.of(new ValidationError(2, "date", "Stock date is missing")));
+        String json = objectMapper.writeValueAsString(List.of(stock1, stock2));
+        List<ChunkResult> results = stockStreamImporter.importStocks(asStream(json));
+        assertThat(results).containsExactly(
+                new ChunkResult(1, 1, 2, 0, "Problem with Stock nr 2 Stock date is missing"));
+        verify(service, never()).addStocksToRepository(anyList());
+    }
+
+    @Test
+    void unreadableStockStopsTheImport() throws Exception {
+        String json = objectMapper.writeValueAsString(stock1) + "\n{\"id\": \"not a number\"}\n";
+        List<ChunkResult> results = stockStreamImporter.importStocks(asStream(json));
+        assertThat(results).hasSize(1);
+        assertThat(results.get(0).getError()).startsWith("Stock nr 2 could not be read");
+        verify(service, never()).addStocksToRepository(anyList());
+    }
+
+    @Test
+    void valueThatIsNotAStockIsRejected() throws Exception {
+        String json = "[" + objectMapper.writeValueAsString(stock1) + ",\n 5]";
+        List<ChunkResult> results = stockStreamImporter.importStocks(asStream(json));
+        assertThat(results).containsExactly(new ChunkResult(1, 1, 2, 0,
+                "Stock nr 2 is not a JSON object, found 5 at line 2, column 2"));
+        verify(service, never()).addStocksToRepository(anyList());
+    }
+
+    private ByteArrayInputStream asStream(String json) {
+        return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
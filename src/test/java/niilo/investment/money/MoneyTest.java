@@ -0,0 +1,46 @@
+package niilo.investment.money;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import niilo.investment.stock.Stock;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void decimalsAreConvertedExactly() {
+        assertThat(Money.fromDecimal(new BigDecimal("6.45"))).isEqualTo(64_500L);
+        assertThat(Money.toDecimal(64_500L)).isEqualByComparingTo("6.45");
+    }
+
+    @Test
+    void tooManyDecimalPlacesAreRefused() {
+        assertThatThrownBy(() -> Money.fromDecimal(new BigDecimal("0.00001"))).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void overflowIsRefused() {
+        assertThatThrownBy(() -> Money.multiply(Long.MAX_VALUE / 2, 3)).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.add(Long.MAX_VALUE, 1)).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void priceIsReadAndWrittenAsDecimal() throws Exception {
+        Stock stock = objectMapper.readValue("{\"pricePerShare\": 12.5}", Stock.class);
+        assertThat(stock.getPricePerShare()).isEqualTo(125_000L);
+        assertThat(objectMapper.writeValueAsString(stock)).contains("\"pricePerShare\":12.5");
+    }
+
+    @Test
+    void priceWithTooManyDecimalPlacesIsNotRead() {
+        assertThatThrownBy(() -> objectMapper.readValue("{\"pricePerShare\": 12.50001}", Stock.class))
+                .isInstanceOf(InvalidFormatException.class);
+    }
+}
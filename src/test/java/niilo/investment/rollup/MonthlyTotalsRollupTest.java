@@ -0,0 +1,228 @@
+package niilo.investment.rollup;
+
+import niilo.investment.employee.Employee;
+import niilo.investment.employee.EmployeeRepository;
+import niilo.investment.service.Service;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.sharedata.ShareDataRepository;
+import niilo.investment.statistics.EmployeeMonthlyTotal;
+import niilo.investment.statistics.EmployeeSpending;
+import niilo.investment.statistics.MonthlyTotal;
+import niilo.investment.stock.Stock;
+import niilo.investment.stock.StockRepository;
+import niilo.investment.stock.StocksSavedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class MonthlyTotalsRollupTest {
+
+    @Autowired
+    Service service;
+    @Autowired
+    MonthlyTotalsRollup monthlyTotalsRollup;
+    @Autowired
+    MonthlyEmployeeTotalRepository monthlyEmployeeTotalRepository;
+    @Autowired
+    StockRepository stockRepository;
+    @Autowired
+    EmployeeRepository employeeRepository;
+    @Autowired
+    ShareDataRepository shareDataRepository;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+    @Autowired
+    CommitBarrier commitBarrier;
+
+
+    @BeforeEach
+    public void setUp() {
+        employeeRepository.saveAll(List.of(new Employee(1L), new Employee(2L)));
+        service.addStocksToRepository(List.of(
+                new Stock(1L, shareData(), 125_000L, 5L, LocalDate.of(2022, 4, 11), new Employee(1L)),
+                new Stock(2L, shareData(), 75_000L, 50L, LocalDate.of(2021, 4, 2), new Employee(2L)),
+                new Stock(3L, shareData(), 105_000L, 2L, LocalDate.of(2022, 12, 8), new Employee(1L))));
+        service.addStockToRepository(
+                new Stock(4L, shareData(), 10_000L, 1L, LocalDate.of(2022, 4, 20), new Employee(1L)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stockRepository.deleteAll();
+        monthlyEmployeeTotalRepository.deleteAll();
+        shareDataRepository.deleteAll();
+        employeeRepository.deleteAll();
+    }
+
+    @Test
+    void totalsAreUpdatedWithEveryInsert() {
+        assertThat(monthlyEmployeeTotalRepository.findAll()).containsExactlyInAnyOrder(
+                new MonthlyEmployeeTotal(new MonthlyEmployeeTotalId(1L, 2022, 4), 635_000L, 2L),
+                new MonthlyEmployeeTotal(new MonthlyEmployeeTotalId(2L, 2021, 4), 3_750_000L, 1L),
+                new MonthlyEmployeeTotal(new MonthlyEmployeeTotalId(1L, 2022, 12), 210_000L, 1L));
+        assertThat(monthlyEmployeeTotalRepository.sumCostGroupedByMonth()).containsExactlyInAnyOrder(
+                new MonthlyTotal(4, 4_385_000L),
+                new MonthlyTotal(12, 210_000L));
+        assertThat(monthlyEmployeeTotalRepository.sumCostOfEmployeeGroupedByMonth(2L)).containsExactly(
+                new MonthlyTotal(4, 3_750_000L));
+    }
+
+    @Test
+    void everyEmployeeIsGroupedByMonthInOnePass() {
+        employeeRepository.save(new Employee(3L));
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<EmployeeMonthlyTotal> totals =
+                         monthlyEmployeeTotalRepository.streamCostOfEveryEmployeeGroupedByMonth()) {
+                assertThat(totals).containsExactly(
+                        new EmployeeMonthlyTotal(1L, 4, 635_000L),
+                        new EmployeeMonthlyTotal(1L, 12, 210_000L),
+                        new EmployeeMonthlyTotal(2L, 4, 3_750_000L),
+                        new EmployeeMonthlyTotal(3L, null, null));
+            }
+            try (Stream<EmployeeMonthlyTotal> totals =
+                         monthlyEmployeeTotalRepository.streamCostOfEmployeesGroupedByMonth(List.of(2L, 9L))) {
+                assertThat(totals).containsExactly(new EmployeeMonthlyTotal(2L, 4, 3_750_000L));
+            }
+        });
+    }
+
+    @Test
+    void topSpendersAreSortedByTheirSpending() {
+        assertThat(monthlyEmployeeTotalRepository.findTopSpenders(2022, 4, 4, PageRequest.of(0, 20)))
+                .containsExactly(new EmployeeSpending(1L, 635_000L));
+        assertThat(monthlyEmployeeTotalRepository.findTopSpenders(2021, 1, 12, PageRequest.of(0, 20)))
+                .containsExactly(new EmployeeSpending(2L, 3_750_000L));
+        assertThat(monthlyEmployeeTotalRepository.findTopSpenders(2022, 10, 12, PageRequest.of(0, 1)))
+                .containsExactly(new EmployeeSpending(1L, 210_000L));
+    }
+
+    @Test
+    void rebuildRecountsTheTotalsFromStocks() {
+        List<MonthlyEmployeeTotal> totals = monthlyEmployeeTotalRepository.findAll();
+        monthlyEmployeeTotalRepository.save(
+                new MonthlyEmployeeTotal(new MonthlyEmployeeTotalId(2L, 2020, 1), 1L, 1L));
+        monthlyEmployeeTotalRepository.save(
+                new MonthlyEmployeeTotal(new MonthlyEmployeeTotalId(1L, 2022, 4), 0L, 0L));
+
+        assertThat(monthlyTotalsRollup.rebuild()).isEqualTo(3);
+
+        assertThat(monthlyEmployeeTotalRepository.findAll()).containsExactlyInAnyOrderElementsOf(totals);
+    }
+
+    @Test
+    void concurrentBatchesAddToTheSameNewTotal() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int month = 1; month <= 12; month++) {
+                LocalDate date = LocalDate.of(2023, month, 1);
+                long firstId = 100L + month * 2;
+                commitBarrier.arm(2);
+                Future<?> first = executor.submit(() -> service.addStocksToRepository(List.of(
+                        new Stock(firstId, shareData(), 10_000L, 1L, date, new Employee(2L)))));
+                Future<?> second = executor.submit(() -> service.addStocksToRepository(List.of(
+                        new Stock(firstId + 1, shareData(), 20_000L, 1L, date, new Employee(2L)))));
+                first.get(30, TimeUnit.SECONDS);
+                second.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            commitBarrier.disarm();
+            executor.shutdownNow();
+        }
+
+        for (int month = 1; month <= 12; month++) {
+            MonthlyEmployeeTotalId id = new MonthlyEmployeeTotalId(2L, 2023, month);
+            assertThat(monthlyEmployeeTotalRepository.findById(id))
+                    .contains(new MonthlyEmployeeTotal(id, 30_000L, 2L));
+        }
+    }
+
+    /**
+     * Holds a batch open after it has added to a total, then rebuilds. The recount cannot see the stock of the
+     * batch, so it must not write its total before the batch commits.
+     */
+    @Test
+    void batchCommittedDuringARebuildIsKept() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch added = new CountDownLatch(1);
+        try {
+            Future<?> batch = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+                Stock stock = stockRepository.saveAndFlush(new Stock(5L, shareDataRepository.findAll().get(0),
+                        10_000L, 1L, LocalDate.of(2022, 4, 25), new Employee(1L)));
+                monthlyTotalsRollup.stocksSaved(new StocksSavedEvent(List.of(stock)));
+                added.countDown();
+                sleep(500);
+            }));
+            assertThat(added.await(10, TimeUnit.SECONDS)).isTrue();
+            Future<?> rebuild = executor.submit(monthlyTotalsRollup::rebuild);
+            batch.get(30, TimeUnit.SECONDS);
+            rebuild.get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        MonthlyEmployeeTotalId id = new MonthlyEmployeeTotalId(1L, 2022, 4);
+        assertThat(monthlyEmployeeTotalRepository.findById(id))
+                .contains(new MonthlyEmployeeTotal(id, 645_000L, 3L));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ShareData shareData() {
+        return new ShareData(null, "First Company", "FCPY", "EEFE4592FA93", "Estonia", "Financial");
+    }
+
+    /**
+     * Holds the committing transactions until all of them have reached the totals, so their first inserts of a total
+     * meet.
+     */
+    @TestConfiguration
+    static class CommitBarrier {
+
+        private volatile CyclicBarrier barrier;
+
+        void arm(int parties) {
+            barrier = new CyclicBarrier(parties);
+        }
+
+        void disarm() {
+            barrier = null;
+        }
+
+        @Order(Ordered.HIGHEST_PRECEDENCE)
+        @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+        void stocksSaved(StocksSavedEvent event) throws Exception {
+            CyclicBarrier current = barrier;
+            if (current != null) {
+                current.await(10, TimeUnit.SECONDS);
+            }
+        }
+    }
+}
@@ -1,29 +1,54 @@
 package niilo.investment.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import niilo.investment.analytics.MonthlyCostAccumulator;
+import niilo.investment.analytics.PurchaseColumnStore;
 import niilo.investment.employee.Employee;
-import niilo.investment.employee.EmployeeRepository;
+import niilo.investment.employee.EmployeeCache;
+import niilo.investment.rollup.MonthlyEmployeeTotalRepository;
 import niilo.investment.sharedata.ShareData;
+import niilo.investment.sharedata.ShareDataCatalog;
 import niilo.investment.statistics.EmployeeMonthlyExpenditure;
+import niilo.investment.statistics.EmployeeMonthlyTotal;
+import niilo.investment.statistics.EmployeeSpending;
 import niilo.investment.statistics.MonthlyAcquiringRecords;
 import niilo.investment.statistics.MonthlyExpenditureDTO;
 import niilo.investment.statistics.MonthlyStockDTO;
+import niilo.investment.statistics.StatisticsFixtures;
+import niilo.investment.statistics.MonthlyTotal;
+import niilo.investment.statistics.SecuritySpending;
 import niilo.investment.stock.Stock;
+import niilo.investment.stock.StockPage;
 import niilo.investment.stock.StockRepository;
+import niilo.investment.stock.StocksSavedEvent;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.springframework.http.HttpStatus;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.stream.Stream;
 
+import static niilo.investment.statistics.StatisticsFixtures.monthlyStock;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 
@@ -32,35 +57,55 @@ class ServiceTest {
     private final Stock stock1 = new Stock(1L,
             new ShareData(1L,"First Company","FCPY",
                     "EE-FE4592FA96","Estonia","Financial"),
-            12.5,5L, LocalDate.now(),new Employee(1L));
+            125_000L,5L, LocalDate.now(),new Employee(1L));
     private final Stock stock2 = new Stock(2L,
             new ShareData(2L,"Another Company","ACPY",
                     "LV-FE4592FA96","Latvia","Timber"),
-            9.0,23L, LocalDate.of(2020, Month.APRIL,12),new Employee(2L));
+            90_000L,23L, LocalDate.of(2020, Month.APRIL,12),new Employee(2L));
     private final Stock stock3 = new Stock(3L,
             new ShareData(3L,"Third Firm","TFRM",
                     "LT-FE4872FA26","Lithuania","Education"),
-            3.0,23000L, LocalDate.of(2018, Month.FEBRUARY,10),new Employee(3L));
+            30_000L,23000L, LocalDate.of(2018, Month.FEBRUARY,10),new Employee(3L));
     private final Stock stock4 = new Stock(4L,
             new ShareData(4L,"Fourth Business","FBSN",
                     "FI-GE48H2FA16","Finland","Agriculture"),
-            6.45,1500L, LocalDate.of(2019, Month.MARCH,15),new Employee(1L));
+            64_500L,1500L, LocalDate.of(2019, Month.MARCH,15),new Employee(1L));
 
     @Mock
     StockRepository stockRepository;
     @Mock
-    EmployeeRepository employeeRepository;
+    EmployeeCache employeeCache;
+    @Mock
+    ShareDataCatalog shareDataCatalog;
+    @Mock
+    EntityManager entityManager;
+    @Mock
+    PurchaseColumnStore purchaseColumnStore;
+    @Mock
+    MonthlyCostAccumulator monthlyCostAccumulator;
+    @Mock
+    MonthlyEmployeeTotalRepository monthlyEmployeeTotalRepository;
+    @Mock
+    ApplicationEventPublisher eventPublisher;
+    @Spy
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
     @InjectMocks
     Service service;
 
     @BeforeEach
     public void setUp(){
         openMocks(this);
+        when(shareDataCatalog.upsert(anyCollection())).thenAnswer(invocation -> {
+            Collection<ShareData> shareData = invocation.getArgument(0);
+            Map<String, ShareData> catalog = new HashMap<>();
+            shareData.forEach(entry -> catalog.put(entry.getShareISINCode(), entry));
+            return catalog;
+        });
     }
 
     @Test
     void ServiceAddingStockShouldReturnStock() {
-        Stock stock = new Stock();
+        Stock stock = stock1;
         when(stockRepository.save(stock)).thenReturn(stock);
         Stock result = service.addStockToRepository(stock);
         assertThat(result).isEqualTo(stock);
@@ -68,10 +113,24 @@ class ServiceTest {
 
     @Test
     void ServiceAddingMultipleStockSShouldReturnListOfStocks() {
-        List<Stock> stockList = new ArrayList<>();
+        List<Stock> stockList = List.of(stock1, stock2);
         when(stockRepository.saveAll(stockList)).thenReturn(stockList);
         List<Stock> result = service.addStocksToRepository(stockList);
         assertThat(result).isEqualTo(stockList);
+        verify(entityManager).flush();
+        verify(entityManager).clear();
+        verify(eventPublisher).publishEvent(new StocksSavedEvent(stockList));
+    }
+
+    @Test
+    void ServiceAddingStockPointsItToTheCatalogEntry() {
+        ShareData catalogEntry = new ShareData(40L, "First Company", "FCPY",
+                "EE-FE4592FA96", "Estonia", "Financial");
+        when(shareDataCatalog.upsert(List.of(stock1.getShareData())))
+                .thenReturn(Map.of(catalogEntry.getShareISINCode(), catalogEntry));
+        when(stockRepository.save(stock1)).thenReturn(stock1);
+        service.addStockToRepository(stock1);
+        assertThat(stock1.getShareData()).isSameAs(catalogEntry);
     }
 
     @Test
@@ -81,49 +140,154 @@ class ServiceTest {
         List<Stock> result = service.getAllStocks();
         assertThat(result).isEqualTo(stockList);
     }
+    @Test
+    void ServiceExportsStocksOnePerLine() throws Exception {
+        when(stockRepository.streamAllForExport()).thenReturn(Stream.of(stock1, stock2));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        service.exportStocks(outputStream);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(
+                objectMapper.writeValueAsString(stock1) + "\n" + objectMapper.writeValueAsString(stock2) + "\n");
+    }
+
+    @Test
+    void ServiceReturnsPageOfStocksWithCursor() {
+        when(stockRepository.findByIdGreaterThanOrderByIdAsc(1L, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(List.of(stock2, stock3), PageRequest.of(0, 2), true));
+        assertThat(service.getStocksAfter(1L, 2)).isEqualTo(new StockPage(List.of(stock2, stock3), 3L));
+    }
+
+    @Test
+    void ServiceReturnsLastPageWithoutCursor() {
+        when(stockRepository.findByIdGreaterThanOrderByIdAsc(3L, PageRequest.of(0, 2)))
+                .thenReturn(new SliceImpl<>(List.of(stock4), PageRequest.of(0, 2), false));
+        assertThat(service.getStocksAfter(3L, 2)).isEqualTo(new StockPage(List.of(stock4), null));
+    }
+
+    @Test
+    void ServiceRejectsTooBigPage() {
+        assertThatThrownBy(() -> service.getStocksAfter(0L, Service.MAX_PAGE_SIZE + 1))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Page limit has to be between 1 and");
+    }
+
     @Test
     void ServiceReturnsMonthlyCostsOfAllStocks() {
-        List<Stock> stockList = List.of(stock1, stock2, stock3, stock4);
-        when(stockRepository.findAll()).thenReturn(stockList);
+        when(monthlyCostAccumulator.sumCostGroupedByMonth()).thenReturn(List.of(
+                new MonthlyTotal(Month.FEBRUARY.getValue(), 690_000_000L),
+                new MonthlyTotal(Month.MARCH.getValue(), 96_750_000L)));
         List<MonthlyExpenditureDTO> monthlyExpenditureDTOList = new ArrayList<>();
         for (Month month : Month.values()) {
-            List<Stock> monthlyStocks = new ArrayList<>();
-            for (Stock stock : stockList) {
-                if (stock.getDate().getMonth().equals(month)) {
-                    monthlyStocks.add(stock);
-                }
-            }
-            monthlyExpenditureDTOList.add(new MonthlyExpenditureDTO(monthlyStocks, month));
+            long totalCost = switch (month) {
+                case FEBRUARY -> 690_000_000L;
+                case MARCH -> 96_750_000L;
+                default -> 0L;
+            };
+            monthlyExpenditureDTOList.add(new MonthlyExpenditureDTO(month, totalCost));
         }
         List<MonthlyExpenditureDTO> serviceMonthlyExpenditure = service.getMonthlyCost();
         assertThat(serviceMonthlyExpenditure).isEqualTo(monthlyExpenditureDTOList);
     }
 
+    @Test
+    void ServiceReturnsMonthlyCostsFromTheColumnStoreWhenItIsEnabled() {
+        when(purchaseColumnStore.isEnabled()).thenReturn(true);
+        when(purchaseColumnStore.sumCostGroupedByMonth(null)).thenReturn(List.of(
+                new MonthlyTotal(Month.MARCH.getValue(), 96_750_000L)));
+        assertThat(service.getMonthlyCost().get(Month.MARCH.ordinal()))
+                .isEqualTo(new MonthlyExpenditureDTO(Month.MARCH, 96_750_000L));
+        verify(monthlyCostAccumulator, never()).sumCostGroupedByMonth();
+    }
+
     @Test
     void serviceReturnsEmployeesAllMonthlyCosts() {
         Employee dummyEmployee = new Employee(1L);
-        when(employeeRepository.findById(dummyEmployee.getId())).thenReturn(Optional.of(dummyEmployee));
-        List<Stock> stockList = List.of(stock1, stock2, stock3, stock4);
-        when(stockRepository.findAll()).thenReturn(stockList);
+        when(employeeCache.exists(dummyEmployee.getId())).thenReturn(true);
+        when(monthlyCostAccumulator.sumCostOfEmployeeGroupedByMonth(dummyEmployee.getId())).thenReturn(List.of(
+                new MonthlyTotal(Month.MARCH.getValue(), 96_750_000L),
+                new MonthlyTotal(Month.DECEMBER.getValue(), 625_000L)));
         EmployeeMonthlyExpenditure expenditure;
         List<MonthlyExpenditureDTO> monthlyExpenditureDTOList = new ArrayList<>();
         for (Month month : Month.values()) {
-            List<Stock> monthlyStocksOfEmployee = new ArrayList<>();
-            for (Stock stock : stockList) {
-                if (stock.getDate().getMonth().equals(month) && stock.getEmployee().equals(dummyEmployee)) {
-                    monthlyStocksOfEmployee.add(stock);
-                }
-            }
-            monthlyExpenditureDTOList.add(new MonthlyExpenditureDTO(monthlyStocksOfEmployee, month));
+            long totalCost = switch (month) {
+                case MARCH -> 96_750_000L;
+                case DECEMBER -> 625_000L;
+                default -> 0L;
+            };
+            monthlyExpenditureDTOList.add(new MonthlyExpenditureDTO(month, totalCost));
         }
         expenditure = new EmployeeMonthlyExpenditure(dummyEmployee, monthlyExpenditureDTOList);
         assertThat(service.getEmployeeMonthlyExpenses(dummyEmployee.getId())).isEqualTo(expenditure);
     }
 
+    @Test
+    void ServiceExportsMonthlyExpensesOfEveryEmployee() throws Exception {
+        when(monthlyEmployeeTotalRepository.streamCostOfEveryEmployeeGroupedByMonth()).thenReturn(Stream.of(
+                new EmployeeMonthlyTotal(1L, 3, 96_750_000L),
+                new EmployeeMonthlyTotal(1L, 12, 625_000L),
+                new EmployeeMonthlyTotal(2L, null, null)));
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        service.exportEmployeesMonthlyExpenses(null, outputStream);
+
+        List<MonthlyExpenditureDTO> firstEmployeeCosts = new ArrayList<>();
+        List<MonthlyExpenditureDTO> secondEmployeeCosts = new ArrayList<>();
+        for (Month month : Month.values()) {
+            long totalCost = switch (month) {
+                case MARCH -> 96_750_000L;
+                case DECEMBER -> 625_000L;
+                default -> 0L;
+            };
+            firstEmployeeCosts.add(new MonthlyExpenditureDTO(month, totalCost));
+            secondEmployeeCosts.add(new MonthlyExpenditureDTO(month, 0L));
+        }
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(objectMapper.writeValueAsString(List.of(
+                new EmployeeMonthlyExpenditure(new Employee(1L), firstEmployeeCosts),
+                new EmployeeMonthlyExpenditure(new Employee(2L), secondEmployeeCosts))));
+    }
+
+    @Test
+    void ServiceExportsMonthlyExpensesOfRequestedEmployees() throws Exception {
+        when(monthlyEmployeeTotalRepository.streamCostOfEmployeesGroupedByMonth(List.of(5L)))
+                .thenReturn(Stream.empty());
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        service.exportEmployeesMonthlyExpenses(List.of(5L), outputStream);
+        assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo("[]");
+    }
+
+    @Test
+    void ServiceReturnsTopSpendersOfAQuarter() {
+        List<EmployeeSpending> topSpenders = List.of(new EmployeeSpending(2L, 690_000_000L));
+        when(monthlyEmployeeTotalRepository.findTopSpenders(2022, 4, 6, PageRequest.of(0, 1))).thenReturn(topSpenders);
+        assertThat(service.getTopSpenders(2022, null, 2, 1)).isEqualTo(topSpenders);
+    }
+
+    @Test
+    void ServiceReturnsTopSecuritiesOfAMonthOrTheWholeYear() {
+        List<SecuritySpending> topSecurities = List.of(
+                new SecuritySpending("EE-FE4592FA96", "First Company", 5L, 625_000L));
+        when(stockRepository.findTopSecurities(2022, 3, 3, PageRequest.of(0, 10))).thenReturn(topSecurities);
+        when(stockRepository.findTopSecurities(2022, 1, 12, PageRequest.of(0, 10))).thenReturn(List.of());
+        assertThat(service.getTopSecurities(2022, 3, null, 10)).isEqualTo(topSecurities);
+        assertThat(service.getTopSecurities(2022, null, null, 10)).isEmpty();
+    }
+
+    @Test
+    void ServiceRejectsWrongTopPeriods() {
+        assertThatThrownBy(() -> service.getTopSpenders(2022, 3, 1, 10))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Give either a month or a quarter");
+        assertThatThrownBy(() -> service.getTopSpenders(2022, 13, null, 10))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Month has to be between 1 and 12");
+        assertThatThrownBy(() -> service.getTopSecurities(2022, null, 5, 10))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Quarter has to be between 1 and 4");
+        assertThatThrownBy(() -> service.getTopSecurities(2022, null, null, Service.MAX_TOP_SIZE + 1))
+                .isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Top limit has to be between 1 and");
+    }
+
     @Test
     void gettingEmployeesMonthlyCostThrowsErrorIfIdNull() {
-        when(employeeRepository.findById(null)).thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                "Employee Id not found"));
         assertThatThrownBy(() -> {
             service.getEmployeeMonthlyExpenses(null);
         }).isInstanceOf(ResponseStatusException.class)
@@ -131,8 +295,7 @@ class ServiceTest {
     }
     @Test
     void gettingEmployeesMonthlyCostThrowsErrorIfIdWrong() {
-        when(employeeRepository.findById(1L)).thenThrow(new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                "Employee Id not found"));
+        when(employeeCache.exists(1L)).thenReturn(false);
         assertThatThrownBy(() -> {
             service.getEmployeeMonthlyExpenses(1L);
         }).isInstanceOf(ResponseStatusException.class)
@@ -142,12 +305,13 @@ class ServiceTest {
     @Test
     void gettingStockDataOfAMonth() {
         List<Stock> stockList = List.of(stock1, stock2, stock3, stock4);
-        when(stockRepository.findAll()).thenReturn(stockList);
         Month month = Month.APRIL;
+        when(stockRepository.streamMonthlyStocksOfMonth(month.getValue())).thenReturn(stockList.stream()
+                .filter(stock -> stock.getDate().getMonth().equals(month)).map(StatisticsFixtures::monthlyStock));
         List<MonthlyStockDTO> monthlyStockDTOList = new ArrayList<>();
-        for (Stock stock : stockRepository.findAll()) {
+        for (Stock stock : stockList) {
             if (stock.getDate().getMonth().equals(month)) {
-                monthlyStockDTOList.add(new MonthlyStockDTO(stock));
+                monthlyStockDTOList.add(monthlyStock(stock));
             }
         }
         MonthlyAcquiringRecords monthlyAcquiringRecords = new MonthlyAcquiringRecords(month,monthlyStockDTOList);
@@ -156,14 +320,14 @@ class ServiceTest {
 
     @Test
     void getAllRecordsByMonth() {
-        List<Stock> stockList = List.of(stock1, stock2, stock3, stock4);
-        when(stockRepository.findAll()).thenReturn(stockList);
+        List<Stock> stockList = List.of(stock3, stock4, stock2, stock1);
+        when(stockRepository.streamMonthlyStocks()).thenReturn(stockList.stream().map(StatisticsFixtures::monthlyStock));
         List<MonthlyAcquiringRecords> monthlyAcquiringRecords = new ArrayList<>();
         for(Month month : Month.values()) {
             List<MonthlyStockDTO> monthlyStockDTOList = new ArrayList<>();
             for (Stock stock : stockList) {
                 if (stock.getDate().getMonth().equals(month)) {
-                    monthlyStockDTOList.add(new MonthlyStockDTO(stock));
+                    monthlyStockDTOList.add(monthlyStock(stock));
                 }
             }
             monthlyAcquiringRecords.add(new MonthlyAcquiringRecords(month,monthlyStockDTOList));
@@ -174,10 +338,12 @@ class ServiceTest {
     @Test
     void getAcquiredRecordsOfAnEmployeeInAMonth() {
         Employee dummyEmployee = new Employee(1L);
-        when(employeeRepository.findById(dummyEmployee.getId())).thenReturn(Optional.of(dummyEmployee));
-        List<Stock> stockList = List.of(stock1, stock2, stock3, stock4);
-        when(stockRepository.findAll()).thenReturn(stockList);
+        when(employeeCache.exists(dummyEmployee.getId())).thenReturn(true);
+        List<Stock> stockList = List.of(stock4, stock1);
         Month month = Month.MARCH;
+        when(stockRepository.streamMonthlyStocksOfEmployeeInMonth(dummyEmployee.getId(), month.getValue()))
+                .thenReturn(stockList.stream().filter(stock -> stock.getDate().getMonth().equals(month))
+                        .map(StatisticsFixtures::monthlyStock));
         MonthlyAcquiringRecords monthlyAcquiringRecords = calculateMonthlyAcquiringRecords(month,dummyEmployee,stockList);
         assertThat(service.getAllAcquiredRecordsInAMonthOfAnEmployee(dummyEmployee.getId(), month)).
                 isEqualTo(monthlyAcquiringRecords);
@@ -187,9 +353,10 @@ class ServiceTest {
     @Test
     void getAllAcquiredRecordsOfAnEmployee() {
         Employee dummyEmployee = new Employee(1L);
-        when(employeeRepository.findById(dummyEmployee.getId())).thenReturn(Optional.of(dummyEmployee));
-        List<Stock> stockList = List.of(stock1, stock2, stock3, stock4);
-        when(stockRepository.findAll()).thenReturn(stockList);
+        when(employeeCache.exists(dummyEmployee.getId())).thenReturn(true);
+        List<Stock> stockList = List.of(stock4, stock1);
+        when(stockRepository.streamMonthlyStocksOfEmployee(dummyEmployee.getId()))
+                .thenReturn(stockList.stream().map(StatisticsFixtures::monthlyStock));
         List<MonthlyAcquiringRecords> monthlyAcquiringRecordsList = new ArrayList<>();
         for(Month month : Month.values()) {
             monthlyAcquiringRecordsList.add(calculateMonthlyAcquiringRecords(month,dummyEmployee,stockList));
@@ -201,7 +368,7 @@ class ServiceTest {
         List<MonthlyStockDTO> monthlyStockDTOList = new ArrayList<>();
         for(Stock stock : stockList) {
             if(stock.getDate().getMonth().equals(month) && stock.getEmployee().equals(employee)) {
-                monthlyStockDTOList.add(new MonthlyStockDTO(stock));
+                monthlyStockDTOList.add(monthlyStock(stock));
             }
         }
         return new MonthlyAcquiringRecords(month,monthlyStockDTOList);
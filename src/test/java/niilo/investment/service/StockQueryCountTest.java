@@ -0,0 +1,120 @@
+package niilo.investment.service;
+
+import jakarta.persistence.EntityManager;
+import niilo.investment.employee.Employee;
+import niilo.investment.employee.EmployeeCache;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.stock.Stock;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.Month;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Every stock endpoint has to read its stocks with the same number of queries, however many stocks there are.
+ */
+@SpringBootTest(properties = "investment.cache.statistics.enabled=true")
+@Transactional
+class StockQueryCountTest {
+
+    @Autowired
+    Service service;
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    EmployeeCache employeeCache;
+
+    @AfterEach
+    public void tearDown() {
+        employeeCache.evict(1L);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    void allStocks(int stocks) {
+        Statistics statistics = saveStocks(stocks);
+        assertThat(service.getAllStocks()).hasSize(stocks);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    void pageOfStocks(int stocks) {
+        Statistics statistics = saveStocks(stocks);
+        assertThat(service.getStocksAfter(0, 100).getStocks()).hasSize(stocks);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    void exportedStocks(int stocks) throws Exception {
+        Statistics statistics = saveStocks(stocks);
+        service.exportStocks(new ByteArrayOutputStream());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    void stocksOfAMonth(int stocks) {
+        Statistics statistics = saveStocks(stocks);
+        assertThat(service.AcquiredStocksInAGivenMonth(Month.APRIL.getValue()).getAcquiredStocks()).hasSize(stocks);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    void stocksByMonth(int stocks) {
+        Statistics statistics = saveStocks(stocks);
+        service.getAllAcquiredRecordsByMonths();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    void stocksOfAnEmployee(int stocks) {
+        Statistics statistics = saveStocks(stocks);
+        service.getAnEmployeeRecordsSortedByMonth(1L);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 40})
+    void stocksOfAnEmployeeInAMonth(int stocks) {
+        Statistics statistics = saveStocks(stocks);
+        assertThat(service.getAllAcquiredRecordsInAMonthOfAnEmployee(1L, Month.APRIL).getAcquiredStocks())
+                .hasSize(stocks);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    /**
+     * Saves stocks of different securities bought by employee 1 in April and detaches them, so nothing is served
+     * from the persistence context. The employee is only cached after a commit, which these rolled back tests never
+     * reach, so it is put into the employee cache by hand.
+     */
+    private Statistics saveStocks(int stocks) {
+        Employee employee = new Employee(1L);
+        entityManager.persist(employee);
+        for (long id = 1; id <= stocks; id++) {
+            ShareData shareData = new ShareData(null, "Company " + id, "C" + id,
+                    "EE%09d0".formatted(id), "Estonia", "Financial");
+            entityManager.persist(shareData);
+            entityManager.persist(new Stock(id, shareData, 125_000L, 5L, LocalDate.of(2022, 4, 11), employee));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        employeeCache.put(employee.getId());
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        return statistics;
+    }
+}
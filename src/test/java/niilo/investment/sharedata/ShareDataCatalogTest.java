@@ -0,0 +1,81 @@
+package niilo.investment.sharedata;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class ShareDataCatalogTest {
+
+    @Autowired
+    ShareDataCatalog shareDataCatalog;
+    @Autowired
+    ShareDataRepository shareDataRepository;
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @AfterEach
+    public void tearDown() {
+        shareDataRepository.deleteAll();
+    }
+
+    @Test
+    void knownSecuritiesKeepTheirDetails() {
+        ShareData known = shareDataRepository.save(
+                new ShareData(null, "First Company", "FCPY", "EEFE4592FA93", "Estonia", "Financial"));
+        ShareData entry = transactionTemplate.execute(status -> shareDataCatalog.upsert(List.of(
+                new ShareData(null, "Renamed Company", "RCPY", "EEFE4592FA93", "Latvia", "Timber"),
+                new ShareData(null, "Another Company", "ACPY", "LVFE2562FA93", "Latvia", "Timber"),
+                new ShareData(null, "Renamed Again", "RAPY", "LVFE2562FA93", "Latvia", "Timber")))
+                .get("EEFE4592FA93"));
+
+        assertThat(entry).isEqualTo(known);
+        assertThat(shareDataRepository.findAll()).extracting(ShareData::getCompanyName)
+                .containsExactlyInAnyOrder("First Company", "Another Company");
+    }
+
+    /**
+     * Holds the first import open after it has added the ISIN code, so the second one adds it at the same time.
+     */
+    @Test
+    void concurrentImportsOfANewSecurityShareOneEntry() throws Exception {
+        ShareData shareData = new ShareData(null, "First Company", "FCPY", "EEFE4592FA93", "Estonia", "Financial");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch added = new CountDownLatch(1);
+        try {
+            Future<Long> first = executor.submit(() -> transactionTemplate.execute(status -> {
+                Long id = shareDataCatalog.upsert(List.of(shareData)).get("EEFE4592FA93").getId();
+                added.countDown();
+                sleep(500);
+                return id;
+            }));
+            assertThat(added.await(10, TimeUnit.SECONDS)).isTrue();
+            Future<Long> second = executor.submit(() -> transactionTemplate.execute(status ->
+                    shareDataCatalog.upsert(List.of(shareData)).get("EEFE4592FA93").getId()));
+
+            assertThat(second.get(30, TimeUnit.SECONDS)).isEqualTo(first.get(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(shareDataRepository.count()).isEqualTo(1);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
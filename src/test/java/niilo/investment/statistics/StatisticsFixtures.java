@@ -0,0 +1,29 @@
+package niilo.investment.statistics;
+
+import niilo.investment.money.Money;
+import niilo.investment.stock.Stock;
+
+import java.time.Month;
+import java.util.List;
+
+/**
+ * Builds the expected report rows of the tests from stocks.
+ */
+public final class StatisticsFixtures {
+
+    private StatisticsFixtures() {
+    }
+
+    public static MonthlyStockDTO monthlyStock(Stock stock) {
+        return new MonthlyStockDTO(stock.getShareData(), stock.getDate(), stock.getPricePerShare(),
+                stock.getVolumeAcquired(), stock.getEmployee());
+    }
+
+    public static MonthlyExpenditureDTO monthlyExpenditure(List<Stock> stocks, Month month) {
+        long totalCost = 0;
+        for (Stock stock : stocks) {
+            totalCost = Money.add(totalCost, Money.multiply(stock.getPricePerShare(), stock.getVolumeAcquired()));
+        }
+        return new MonthlyExpenditureDTO(month, totalCost);
+    }
+}
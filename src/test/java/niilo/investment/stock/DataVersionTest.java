@@ -0,0 +1,94 @@
+package niilo.investment.stock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import niilo.investment.employee.Employee;
+import niilo.investment.employee.EmployeeRepository;
+import niilo.investment.rollup.MonthlyEmployeeTotalRepository;
+import niilo.investment.service.Service;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.sharedata.ShareDataRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class DataVersionTest {
+
+    @Autowired
+    MockMvc mockMvc;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    Service service;
+    @Autowired
+    StockRepository stockRepository;
+    @Autowired
+    MonthlyEmployeeTotalRepository monthlyEmployeeTotalRepository;
+    @Autowired
+    EmployeeRepository employeeRepository;
+    @Autowired
+    ShareDataRepository shareDataRepository;
+    @SpyBean
+    DataVersion dataVersion;
+
+    @BeforeEach
+    public void setUp() {
+        employeeRepository.save(new Employee(1L));
+        service.addStockToRepository(
+                new Stock(1L, shareData(), 125_000L, 5L, LocalDate.of(2022, 4, 11), new Employee(1L)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        stockRepository.deleteAll();
+        monthlyEmployeeTotalRepository.deleteAll();
+        shareDataRepository.deleteAll();
+        employeeRepository.deleteAll();
+    }
+
+    /**
+     * Reads the monthly report the moment the version moves on, the way a request arriving right after the commit
+     * does. The report of the new version has to include the new stock.
+     */
+    @Test
+    void newVersionReportsTheSavedStocks() throws Exception {
+        String before = monthlyReport();
+        List<String> readAfterInsert = new ArrayList<>();
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            readAfterInsert.add(monthlyReport());
+            return null;
+        }).when(dataVersion).stocksSaved(any());
+
+        service.addStockToRepository(
+                new Stock(2L, shareData(), 10_000L, 1L, LocalDate.of(2022, 4, 20), new Employee(1L)));
+
+        String expected = objectMapper.writeValueAsString(service.getMonthlyCost());
+        assertThat(expected).isNotEqualTo(before);
+        assertThat(readAfterInsert).containsExactly(expected);
+        assertThat(monthlyReport()).isEqualTo(expected);
+    }
+
+    private String monthlyReport() throws Exception {
+        return mockMvc.perform(get("/api/monthly")).andReturn().getResponse().getContentAsString();
+    }
+
+    private ShareData shareData() {
+        return new ShareData(null, "First Company", "FCPY", "EEFE4592FA93", "Estonia", "Financial");
+    }
+}
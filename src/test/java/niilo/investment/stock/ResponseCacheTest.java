@@ -0,0 +1,56 @@
+package niilo.investment.stock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+    private final ResponseCache responseCache = new ResponseCache();
+
+    @BeforeEach
+    public void setUp() {
+        ReflectionTestUtils.setField(responseCache, "maxBytes", 20L);
+        ReflectionTestUtils.setField(responseCache, "objectMapper", new ObjectMapper());
+    }
+
+    @Test
+    void responsesOfAnOldVersionAreDroppedWhenTheVersionMovesOn() {
+        responseCache.get(1, "/monthly", List.of(), () -> "april");
+        responseCache.get(1, "/stocks/{id}", List.of(1L), () -> "may");
+        assertThat(responseCache.size()).isEqualTo(2);
+
+        assertThat(responseCache.get(2, "/monthly", List.of(), () -> "june")).isEqualTo("june");
+        assertThat(responseCache.size()).isEqualTo(1);
+        assertThat(responseCache.get(1, "/monthly", List.of(), () -> "april")).isEqualTo("april");
+        assertThat(responseCache.get(2, "/monthly", List.of(), () -> "july")).isEqualTo("june");
+    }
+
+    @Test
+    void savedStocksDropTheResponses() {
+        responseCache.get(1, "/monthly", List.of(), () -> "april");
+        responseCache.stocksSaved(new StocksSavedEvent(List.of()));
+        assertThat(responseCache.size()).isZero();
+        assertThat(responseCache.bytes()).isZero();
+    }
+
+    @Test
+    void leastRecentlyUsedResponsesAreDroppedOnceTheyWeighTooMuch() {
+        responseCache.get(1, "/stocks/{id}", List.of(1L), () -> "first");
+        responseCache.get(1, "/stocks/{id}", List.of(2L), () -> "second");
+        responseCache.get(1, "/stocks/{id}", List.of(1L), () -> "not built");
+        responseCache.get(1, "/stocks/{id}", List.of(3L), () -> "third");
+
+        assertThat(responseCache.bytes()).isEqualTo("\"first\"".length() + "\"third\"".length());
+        assertThat(responseCache.get(1, "/stocks/{id}", List.of(1L), () -> "not built")).isEqualTo("first");
+        assertThat(responseCache.get(1, "/stocks/{id}", List.of(2L), () -> "rebuilt")).isEqualTo("rebuilt");
+        assertThat(responseCache.get(1, "/stocks/{id}", List.of(9L), () -> "heavier than the whole cache"))
+                .isEqualTo("heavier than the whole cache");
+        assertThat(responseCache.bytes()).isLessThanOrEqualTo(20L);
+    }
+}
@@ -8,55 +8,67 @@ import niilo.investment.statistics.EmployeeMonthlyExpenditure;
 import niilo.investment.statistics.MonthlyAcquiringRecords;
 import niilo.investment.statistics.MonthlyExpenditureDTO;
 import niilo.investment.statistics.MonthlyStockDTO;
+import niilo.investment.statistics.SecuritySpending;
 import niilo.investment.validators.StockValidator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDate;
 import java.time.Month;
+import java.time.Year;
 import java.util.List;
 
+import static niilo.investment.statistics.StatisticsFixtures.monthlyExpenditure;
+import static niilo.investment.statistics.StatisticsFixtures.monthlyStock;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 class StockControllerTest {
     private final Stock validStock = new Stock(1L,
             new ShareData(1L, "First Company", "FCPY",
-                    "EEFE4592FA96", "Estonia", "Financial"),
-            12.5, 5L, LocalDate.of(2022,4,11), new Employee(1L));
+                    "EEFE4592FA93", "Estonia", "Financial"),
+            125_000L, 5L, LocalDate.of(2022,4,11), new Employee(1L));
     private final Stock validStock1 = new Stock(2L,
             new ShareData(2L, "Another Company", "ACPY",
-                    "LVFE2562FA96", "Latvia", "Timber"),
-            10.5, 2L, LocalDate.of(2022,12,8), new Employee(2L));
+                    "LVFE2562FA93", "Latvia", "Timber"),
+            105_000L, 2L, LocalDate.of(2022,12,8), new Employee(2L));
     private final Stock validStock2 = new Stock(1L,
             new ShareData(3L, "Third Company", "THPY",
-                    "LTFE4592FA96", "Lithuania", "Education"),
-            7.5, 50L, LocalDate.of(2022,4,22), new Employee(1L));
+                    "LTFE4592FA97", "Lithuania", "Education"),
+            75_000L, 50L, LocalDate.of(2022,4,22), new Employee(1L));
     private final Stock validStock3 = new Stock(2L,
             new ShareData(2L, "Farming Ltd", "FLTD",
                     "FIFE27652FA96", "Finland", "Agriculture"),
-            3.0, 12L, LocalDate.of(2022,12,7), new Employee(3L));
+            30_000L, 12L, LocalDate.of(2022,12,7), new Employee(3L));
     private final List<Stock> stocks = List.of(validStock, validStock2);
     private final List<Stock> stocks1 = List.of(validStock1, validStock3);
-    private final MonthlyExpenditureDTO AprilExpenditureDTO = new MonthlyExpenditureDTO(stocks, Month.APRIL);
-    private final MonthlyExpenditureDTO DecemberExpenditureDTO = new MonthlyExpenditureDTO(stocks1, Month.DECEMBER);
+    private final MonthlyExpenditureDTO AprilExpenditureDTO = monthlyExpenditure(stocks, Month.APRIL);
+    private final MonthlyExpenditureDTO DecemberExpenditureDTO = monthlyExpenditure(stocks1, Month.DECEMBER);
     private final List<MonthlyExpenditureDTO> monthlyExpenditureDTOList = List.of(AprilExpenditureDTO, DecemberExpenditureDTO);
     private final Employee employee = new Employee(1L);
     private final EmployeeMonthlyExpenditure expenditure = new EmployeeMonthlyExpenditure(employee,monthlyExpenditureDTOList);
-    private final MonthlyStockDTO monthlyStockDTO = new MonthlyStockDTO(validStock);
-    private final MonthlyStockDTO monthlyStockDTO1 = new MonthlyStockDTO(validStock2);
-    private final MonthlyStockDTO monthlyStockDTO2 = new MonthlyStockDTO(validStock1);
-    private final MonthlyStockDTO monthlyStockDTO3 = new MonthlyStockDTO(validStock3);
+    private final MonthlyStockDTO monthlyStockDTO = monthlyStock(validStock);
+    private final MonthlyStockDTO monthlyStockDTO1 = monthlyStock(validStock2);
+    private final MonthlyStockDTO monthlyStockDTO2 = monthlyStock(validStock1);
+    private final MonthlyStockDTO monthlyStockDTO3 = monthlyStock(validStock3);
     private final List<MonthlyStockDTO> monthlyStockDTOList = List.of(monthlyStockDTO, monthlyStockDTO1);
     private final List<MonthlyStockDTO> monthlyStockDTOList1 = List.of( monthlyStockDTO2, monthlyStockDTO3);
     private  final MonthlyAcquiringRecords monthlyAcquiringRecords = new MonthlyAcquiringRecords(Month.APRIL, monthlyStockDTOList);
@@ -68,6 +80,9 @@ class StockControllerTest {
     Service service;
     @Mock
     StockValidator stockValidator;
+    @Spy
+    DataVersion dataVersion = new DataVersion();
+    ResponseCache responseCache = new ResponseCache();
     @InjectMocks
     StockController stockController;
 
@@ -76,18 +91,31 @@ class StockControllerTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        ReflectionTestUtils.setField(responseCache, "maxBytes", 1_000_000L);
+        ReflectionTestUtils.setField(responseCache, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(stockController, "responseCache", responseCache);
         mockMvc = MockMvcBuilders.standaloneSetup(stockController).build();
     }
     @Test
     void testList() throws Exception {
         List<Stock> validStocks = List.of(validStock, validStock1);
         when(service.getAllStocks()).thenReturn(validStocks);
-        MvcResult result = mockMvc.perform(get("/api/stocks")).andExpect(status().isOk())
+        MvcResult result = mockMvc.perform(get("/api/stocks").param("all", "true")).andExpect(status().isOk())
                 .andReturn();
         assertThat(result.getResponse().getContentAsString()).isEqualTo(asJsonString(validStocks));
 
     }
 
+    @Test
+    void testPage() throws Exception {
+        StockPage page = new StockPage(List.of(validStock1), 2L);
+        when(service.getStocksAfter(1L, 1)).thenReturn(page);
+        MvcResult result = mockMvc.perform(get("/api/stocks").param("after", "1").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertThat(result.getResponse().getContentAsString()).isEqualTo(asJsonString(page));
+    }
+
     @Test
     void addOneStock() throws Exception {
         when(stockValidator.isStockValid(validStock)).thenReturn(validStock);
@@ -135,6 +163,14 @@ class StockControllerTest {
 
     }
 
+    @Test
+    void monthlyExpensesOfRequestedEmployees() throws Exception {
+        mockMvc.perform(get("/api/monthly/employees").param("ids", "1,2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", MediaType.APPLICATION_JSON_VALUE));
+        verify(service).exportEmployeesMonthlyExpenses(eq(List.of(1L, 2L)), any());
+    }
+
     @Test
     void stocksAcquiredInAMonth() throws Exception {
         when(service.AcquiredStocksInAGivenMonth(4)).thenReturn(monthlyAcquiringRecords);
@@ -173,6 +209,68 @@ class StockControllerTest {
         assertThat(result.getResponse().getContentAsString()).isEqualTo(asJsonString(monthlyAcquiringRecordsList));
     }
 
+    @Test
+    void statisticsAreBuiltOncePerVersion() throws Exception {
+        when(service.getMonthlyCost()).thenReturn(monthlyExpenditureDTOList);
+        String eTag = DataVersion.eTag(dataVersion.current());
+        mockMvc.perform(get("/api/monthly")).andExpect(status().isOk()).andExpect(header().string("ETag", eTag));
+        MvcResult result = mockMvc.perform(get("/api/monthly")).andExpect(status().isOk()).andReturn();
+        assertThat(result.getResponse().getContentAsString()).isEqualTo(asJsonString(monthlyExpenditureDTOList));
+        verify(service, times(1)).getMonthlyCost();
+    }
+
+    @Test
+    void currentVersionIsNotModified() throws Exception {
+        String eTag = DataVersion.eTag(dataVersion.current());
+        mockMvc.perform(get("/api/stocks/1").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        verify(service, never()).getAnEmployeeRecordsSortedByMonth(1L);
+    }
+
+    @Test
+    void savedStocksMakeANewVersion() throws Exception {
+        when(service.getAnEmployeeRecordsSortedByMonth(1L)).thenReturn(monthlyAcquiringRecordsList);
+        String eTag = DataVersion.eTag(dataVersion.current());
+        mockMvc.perform(get("/api/stocks/1")).andExpect(status().isOk());
+        dataVersion.stocksSaved(new StocksSavedEvent(stocks));
+        mockMvc.perform(get("/api/stocks/1").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", DataVersion.eTag(dataVersion.current())));
+        verify(service, times(2)).getAnEmployeeRecordsSortedByMonth(1L);
+    }
+
+    @Test
+    void topListsAreOfTheCurrentYearUnlessAYearIsGiven() throws Exception {
+        int currentYear = Year.now().getValue();
+        List<SecuritySpending> thisYear = List.of(
+                new SecuritySpending("EEFE4592FA93", "First Company", 5L, 625_000L));
+        List<SecuritySpending> lastYear = List.of(
+                new SecuritySpending("LVFE2562FA93", "Another Company", 2L, 210_000L));
+        when(service.getTopSecurities(currentYear, null, 1, 10)).thenReturn(thisYear);
+        when(service.getTopSecurities(currentYear - 1, null, 1, 10)).thenReturn(lastYear);
+        MvcResult current = mockMvc.perform(get("/api/top/securities").param("quarter", "1"))
+                .andExpect(status().isOk()).andReturn();
+        MvcResult previous = mockMvc.perform(get("/api/top/securities").param("quarter", "1")
+                        .param("year", String.valueOf(currentYear - 1)))
+                .andExpect(status().isOk()).andReturn();
+        assertThat(current.getResponse().getContentAsString()).isEqualTo(asJsonString(thisYear));
+        assertThat(previous.getResponse().getContentAsString()).isEqualTo(asJsonString(lastYear));
+    }
+
+    @Test
+    void topListsOfAnotherYearAreModified() throws Exception {
+        int currentYear = Year.now().getValue();
+        long version = dataVersion.current();
+        when(service.getTopSpenders(currentYear, null, null, 10)).thenReturn(List.of());
+        mockMvc.perform(get("/api/top/employees")
+                        .header("If-None-Match", DataVersion.eTag(version, currentYear - 1)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", DataVersion.eTag(version, currentYear)));
+        mockMvc.perform(get("/api/top/employees")
+                        .header("If-None-Match", DataVersion.eTag(version, currentYear)))
+                .andExpect(status().isNotModified());
+    }
+
     public static String asJsonString(final Object obj) {
         try {
             return new ObjectMapper().findAndRegisterModules().writeValueAsString(obj);
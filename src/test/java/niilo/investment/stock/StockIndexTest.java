@@ -0,0 +1,120 @@
+package niilo.investment.stock;
+
+import jakarta.persistence.EntityManager;
+import niilo.investment.employee.Employee;
+import niilo.investment.sharedata.ShareData;
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs H2 EXPLAIN on the SQL that Hibernate generates for the report queries.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "niilo.investment.stock.StockIndexTest$RecordingInspector")
+class StockIndexTest {
+
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    StockRepository stockRepository;
+
+    @BeforeEach
+    public void setUp() {
+        Employee employee = new Employee(1L);
+        entityManager.persist(employee);
+        ShareData shareData = new ShareData(null, "First Company", "FCPY",
+                "EEFE4592FA93", "Estonia", "Financial");
+        entityManager.persist(shareData);
+        for (long id = 1; id <= 120; id++) {
+            LocalDate date = LocalDate.of(2022, (int) (id % 12) + 1, 1);
+            entityManager.persist(new Stock(id, shareData, 125_000L, 5L, date, employee));
+        }
+        entityManager.flush();
+        RecordingInspector.STATEMENTS.clear();
+    }
+
+    @Test
+    void stocksOfAMonthAreReadThroughTheMonthIndex() {
+        try (var stocks = stockRepository.streamMonthlyStocksOfMonth(4)) {
+            assertThat(stocks).hasSize(10);
+        }
+        assertThat(explainLastStatement(4))
+                .containsIgnoringCase("idx_stocks_month")
+                .doesNotContainIgnoringCase("stocks.tableScan");
+    }
+
+    @Test
+    void stocksOfAnEmployeeInAMonthAreReadThroughTheEmployeeMonthIndex() {
+        try (var stocks = stockRepository.streamMonthlyStocksOfEmployeeInMonth(1L, 4)) {
+            assertThat(stocks).hasSize(10);
+        }
+        assertThat(explainLastStatement(1L, 4))
+                .containsIgnoringCase("idx_stocks_employee_month")
+                .doesNotContainIgnoringCase("stocks.tableScan");
+    }
+
+    @Test
+    void stocksOfAnEmployeeAreNotFoundWithATableScan() {
+        try (var stocks = stockRepository.streamMonthlyStocksOfEmployee(1L)) {
+            assertThat(stocks).hasSize(120);
+        }
+        assertThat(explainLastStatement(1L))
+                .doesNotContainIgnoringCase("stocks.tableScan");
+    }
+
+    @Test
+    void topSecuritiesOfAQuarterAreReadThroughTheMonthIndex() {
+        assertThat(stockRepository.findTopSecurities(2022, 4, 6, PageRequest.of(0, 5)))
+                .hasSize(1);
+        assertThat(explainLastStatement(4, 6, 2022, 5))
+                .containsIgnoringCase("idx_stocks_month")
+                .doesNotContainIgnoringCase("stocks.tableScan");
+    }
+
+    /**
+     * Explains the last statement Hibernate sent, inside the test transaction, with the given parameters bound.
+     */
+    private String explainLastStatement(Object... parameters) {
+        List<String> statements = RecordingInspector.STATEMENTS;
+        assertThat(statements).isNotEmpty();
+        String sql = statements.get(statements.size() - 1);
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Keeps every statement Hibernate prepares, so the tests see the SQL of the repository methods.
+     */
+    public static class RecordingInspector implements StatementInspector {
+
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
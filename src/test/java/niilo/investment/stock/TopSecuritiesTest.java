@@ -0,0 +1,60 @@
+package niilo.investment.stock;
+
+import jakarta.persistence.EntityManager;
+import niilo.investment.employee.Employee;
+import niilo.investment.sharedata.ShareData;
+import niilo.investment.statistics.SecuritySpending;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class TopSecuritiesTest {
+
+    @Autowired
+    EntityManager entityManager;
+    @Autowired
+    StockRepository stockRepository;
+
+    @BeforeEach
+    public void setUp() {
+        Employee employee = new Employee(1L);
+        entityManager.persist(employee);
+        ShareData first = new ShareData(null, "First Company", "FCPY", "EEFE4592FA93", "Estonia", "Financial");
+        ShareData second = new ShareData(null, "Another Company", "ACPY", "LVFE2562FA93", "Latvia", "Timber");
+        ShareData third = new ShareData(null, "Third Company", "THPY", "LTFE4592FA97", "Lithuania", "Education");
+        entityManager.persist(first);
+        entityManager.persist(second);
+        entityManager.persist(third);
+        entityManager.persist(new Stock(1L, first, 125_000L, 5L, LocalDate.of(2022, 1, 11), employee));
+        entityManager.persist(new Stock(2L, second, 105_000L, 2L, LocalDate.of(2022, 2, 8), employee));
+        entityManager.persist(new Stock(3L, first, 75_000L, 50L, LocalDate.of(2021, 3, 22), employee));
+        entityManager.persist(new Stock(4L, third, 30_000L, 12L, LocalDate.of(2022, 4, 7), employee));
+        entityManager.flush();
+    }
+
+    @Test
+    void securitiesOfAQuarterAreSortedByTheirCost() {
+        assertThat(stockRepository.findTopSecurities(2022, 1, 3, PageRequest.of(0, 20))).containsExactly(
+                new SecuritySpending("EEFE4592FA93", "First Company", 5L, 625_000L),
+                new SecuritySpending("LVFE2562FA93", "Another Company", 2L, 210_000L));
+    }
+
+    @Test
+    void quartersOfDifferentYearsAreNotAddedTogether() {
+        assertThat(stockRepository.findTopSecurities(2021, 1, 3, PageRequest.of(0, 20))).containsExactly(
+                new SecuritySpending("EEFE4592FA93", "First Company", 50L, 3_750_000L));
+    }
+
+    @Test
+    void onlyTheTopSecuritiesAreReturned() {
+        assertThat(stockRepository.findTopSecurities(2022, 1, 12, PageRequest.of(0, 1))).containsExactly(
+                new SecuritySpending("EEFE4592FA93", "First Company", 5L, 625_000L));
+    }
+}
@@ -1,15 +1,13 @@
 package niilo.investment.validators;
 
 import niilo.investment.employee.Employee;
-import niilo.investment.employee.EmployeeRepository;
+import niilo.investment.employee.EmployeeCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.web.server.ResponseStatusException;
 
-import java.util.Optional;
-
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
@@ -17,7 +15,7 @@ import static org.mockito.MockitoAnnotations.openMocks;
 class EmployeeValidatorTest {
 
     @Mock
-    EmployeeRepository employeeRepository;
+    EmployeeCache employeeCache;
     @InjectMocks
     EmployeeValidator employeeValidator;
     @BeforeEach
@@ -28,14 +26,14 @@ class EmployeeValidatorTest {
     @Test
     void testValidEmployee() {
         Employee employee = new Employee(1L);
-        when(employeeRepository.existsById(employee.getId())).thenReturn(true);
+        when(employeeCache.exists(employee.getId())).thenReturn(true);
         employeeValidator.validateEmployee(employee);
     }
 
     @Test
     void testInvalidEmployee() {
         Employee employee = new Employee(1L);
-        when(employeeRepository.existsById(employee.getId())).thenReturn(false);
+        when(employeeCache.exists(employee.getId())).thenReturn(false);
         assertThatThrownBy(() -> {
             employeeValidator.validateEmployee(employee);
         }).isInstanceOf(ResponseStatusException.class)
@@ -44,11 +42,11 @@ class EmployeeValidatorTest {
     @Test
     void testEmployeeIdIsNull() {
         Employee employee = new Employee(null);
-        when(employeeRepository.existsById(employee.getId())).thenReturn(false);
+        when(employeeCache.exists(employee.getId())).thenReturn(false);
         assertThatThrownBy(() -> {
             employeeValidator.validateEmployee(employee);
         }).isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Employee ID is missing");
     }
 
-}
\ No newline at end of file
+}
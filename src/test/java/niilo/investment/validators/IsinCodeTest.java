@@ -0,0 +1,28 @@
+package niilo.investment.validators;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IsinCodeTest {
+
+    @Test
+    void validIsinCodes() {
+        assertThat(IsinCode.hasValidCheckDigit("US0378331005")).isTrue();
+        assertThat(IsinCode.hasValidCheckDigit("EE3100007857")).isTrue();
+        assertThat(IsinCode.hasValidCheckDigit("EEFE4592FA93")).isTrue();
+    }
+
+    @Test
+    void wrongCheckDigit() {
+        assertThat(IsinCode.hasValidCheckDigit("US0378331004")).isFalse();
+        assertThat(IsinCode.hasValidCheckDigit("EEFE4592FA96")).isFalse();
+    }
+
+    @Test
+    void format() {
+        assertThat(IsinCode.hasValidFormat("US0378331005")).isTrue();
+        assertThat(IsinCode.hasValidFormat("EE-FE4592FA96")).isFalse();
+        assertThat(IsinCode.hasValidFormat("us0378331005")).isFalse();
+    }
+}
@@ -1,52 +1,30 @@
 package niilo.investment.validators;
 
 import niilo.investment.sharedata.ShareData;
-import niilo.investment.sharedata.ShareDataRepository;
-import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
-import static org.mockito.Mockito.when;
-import static org.mockito.MockitoAnnotations.openMocks;
 
 class ShareDataValidatorTest {
 
-    @Mock
-    ShareDataRepository shareDataRepository;
-    @InjectMocks
-    ShareDataValidator shareDataValidator;
-    @BeforeEach
-    public void setUp(){
-        openMocks(this);
-    }
+    ShareDataValidator shareDataValidator = new ShareDataValidator();
 
     @Test
     void testValidShareData(){
         ShareData validShareData = new ShareData(1L,"First Company","FCPY",
-                "EEFE4592FA96","Estonia","Financial");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
+                "EEFE4592FA93","Estonia","Financial");
         shareDataValidator.validateShareData(validShareData);
     }
 
-    @Test
-    void testInvalidShareDataId(){
-        ShareData invalidShareData = new ShareData(1L,"First Company","FCPY",
-                "EEFE4592FA96","Estonia","Financial");
-        when(shareDataRepository.existsById(1L)).thenReturn(true);
-        assertThatThrownBy(() -> {
-            shareDataValidator.validateShareData(invalidShareData);
-        }).isInstanceOf(ResponseStatusException.class)
-                .hasMessageContaining("Share data ID already exists in database");
-    }
-
     @Test
     void ShareDataCompanyNameIsNull(){
         ShareData invalidShareData = new ShareData(1L,null,"FCPY",
-                "EEFE4592FA96","Estonia","Financial");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
+                "EEFE4592FA93","Estonia","Financial");
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
@@ -55,8 +33,7 @@ class ShareDataValidatorTest {
     @Test
     void ShareDataCompanyNameIsBlank(){
         ShareData invalidShareData = new ShareData(1L," ","FCPY",
-                "EEFE4592FA96","Estonia","Financial");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
+                "EEFE4592FA93","Estonia","Financial");
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
@@ -66,8 +43,7 @@ class ShareDataValidatorTest {
     @Test
     void ShareDataShareNameIsNull(){
         ShareData invalidShareData = new ShareData(1L,"First Company",null,
-                "EEFE4592FA96","Estonia","Financial");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
+                "EEFE4592FA93","Estonia","Financial");
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
@@ -77,8 +53,7 @@ class ShareDataValidatorTest {
     @Test
     void ShareDataShareNameIsBlank(){
         ShareData invalidShareData = new ShareData(1L,"First Company"," ",
-                "EEFE4592FA96","Estonia","Financial");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
+                "EEFE4592FA93","Estonia","Financial");
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
@@ -89,7 +64,6 @@ class ShareDataValidatorTest {
     void ShareDataISINCodeIsNull(){
         ShareData invalidShareData = new ShareData(1L,"First Company","FCPY",
                 null,"Estonia","Financial");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
@@ -100,7 +74,6 @@ class ShareDataValidatorTest {
     void ShareDataISINCodeIsInvalid(){
         ShareData invalidShareData = new ShareData(1L,"First Company","FCPY",
                 "E4FE4592FA96","Estonia","Financial");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
@@ -110,8 +83,7 @@ class ShareDataValidatorTest {
     @Test
     void ShareDataFieldOfEconomicActivityIsNull(){
         ShareData invalidShareData = new ShareData(1L,"First Company","FCPY",
-                "EEFE4592FA96","Estonia",null);
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
+                "EEFE4592FA93","Estonia",null);
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
@@ -121,8 +93,7 @@ class ShareDataValidatorTest {
     @Test
     void ShareDataFieldOfEconomicActivityIsBlank(){
         ShareData invalidShareData = new ShareData(1L,"First Company","FCPY",
-                "EEFE4592FA96","Estonia"," ");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
+                "EEFE4592FA93","Estonia"," ");
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
@@ -132,8 +103,7 @@ class ShareDataValidatorTest {
     @Test
     void ShareDataCountryIsNull(){
         ShareData invalidShareData = new ShareData(1L,"First Company","FCPY",
-                "EEFE4592FA96",null,"Timber");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
+                "EEFE4592FA93",null,"Timber");
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
@@ -143,12 +113,33 @@ class ShareDataValidatorTest {
     @Test
     void ShareDataCountryIsBlank(){
         ShareData invalidShareData = new ShareData(1L,"First Company","FCPY",
-                "EEFE4592FA96"," ","Timber");
-        when(shareDataRepository.existsById(1L)).thenReturn(false);
+                "EEFE4592FA93"," ","Timber");
         assertThatThrownBy(() -> {
             shareDataValidator.validateShareData(invalidShareData);
         }).isInstanceOf(ResponseStatusException.class)
                 .hasMessageContaining("Share data country is missing");
     }
 
-}
\ No newline at end of file
+    @Test
+    void ShareDataISINCodeCheckDigitIsWrong(){
+        ShareData invalidShareData = new ShareData(1L,"First Company","FCPY",
+                "EEFE4592FA96","Estonia","Financial");
+        assertThatThrownBy(() -> {
+            shareDataValidator.validateShareData(invalidShareData);
+        }).isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Share data ISIN code check digit is wrong");
+    }
+
+    @Test
+    void ShareDataErrorsAreAllFound(){
+        ShareData invalidShareData = new ShareData(1L,null,"FCPY",
+                "EEFE4592FA96"," ","Financial");
+        List<ValidationError> errors = new ArrayList<>();
+        shareDataValidator.findErrors(invalidShareData, 3, errors);
+        assertThat(errors).containsExactly(
+                new ValidationError(3, "shareData.companyName", "Share data company name is missing"),
+                new ValidationError(3, "shareData.shareISINCode", "Share data ISIN code check digit is wrong"),
+                new ValidationError(3, "shareData.country", "Share data country is missing"));
+    }
+
+}
@@ -12,9 +12,17 @@ import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doCallRealMethod;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 
@@ -39,8 +47,8 @@ class StockValidatorTest {
     void validStock() {
         Stock validStock = new Stock(1L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                12.5, 5L, LocalDate.now(), new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, LocalDate.now(), new Employee(1L));
         assertThat(stockValidator.isStockValid(validStock)).isEqualTo(validStock);
     }
 
@@ -48,8 +56,8 @@ class StockValidatorTest {
     void stockMissingDateThrowsError() {
         Stock stockWithoutDate = new Stock(1L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                12.5, 5L, null, new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, null, new Employee(1L));
         assertThatThrownBy(() -> {
             stockValidator.isStockValid(stockWithoutDate);
         }).isInstanceOf(ResponseStatusException.class).hasMessageContaining("Stock date is missing");
@@ -59,8 +67,8 @@ class StockValidatorTest {
     void stockMissingIdThrowsError() {
         Stock stockWithoutId = new Stock(null,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                12.5, 5L, LocalDate.now(), new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, LocalDate.now(), new Employee(1L));
         assertThatThrownBy(() -> {
             stockValidator.isStockValid(stockWithoutId);
         }).isInstanceOf(ResponseStatusException.class).hasMessageContaining("Stock ID is missing");
@@ -70,8 +78,8 @@ class StockValidatorTest {
     void stockIdLessThan1ThrowsError() {
         Stock stockIdLessThan1 = new Stock(0L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                12.5, 5L, LocalDate.now(), new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, LocalDate.now(), new Employee(1L));
         assertThatThrownBy(() -> {
             stockValidator.isStockValid(stockIdLessThan1);
         }).isInstanceOf(ResponseStatusException.class).hasMessageContaining("Stock ID can not be smaller than 1");
@@ -82,8 +90,8 @@ class StockValidatorTest {
         when(stockRepository.existsById(1L)).thenReturn(true);
         Stock stockIdExists = new Stock(1L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                12.5, 5L, LocalDate.now(), new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, LocalDate.now(), new Employee(1L));
         assertThatThrownBy(() -> {
             stockValidator.isStockValid(stockIdExists);
         }).isInstanceOf(ResponseStatusException.class).hasMessageContaining("Purchase with this ID has been done already");
@@ -93,7 +101,7 @@ class StockValidatorTest {
     void stockMissingPricePerShare() {
         Stock stockWithoutPricePerShare = new Stock(1L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
+                        "EEFE4592FA93", "Estonia", "Financial"),
                 null, 5L, LocalDate.now(), new Employee(1L));
         assertThatThrownBy(() -> {
             stockValidator.isStockValid(stockWithoutPricePerShare);
@@ -104,8 +112,8 @@ class StockValidatorTest {
     void stockPricePerShareIsZero() {
         Stock stockWithZeroPricePerShare = new Stock(1L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                0.0, 5L, LocalDate.now(), new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                0L, 5L, LocalDate.now(), new Employee(1L));
         assertThatThrownBy(() -> {
             stockValidator.isStockValid(stockWithZeroPricePerShare);
         }).isInstanceOf(ResponseStatusException.class)
@@ -116,8 +124,8 @@ class StockValidatorTest {
     void stockMissingVolumeAcquired() {
         Stock stockWithoutVolume = new Stock(1L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                12.5, null, LocalDate.now(), new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, null, LocalDate.now(), new Employee(1L));
         assertThatThrownBy(() -> {
             stockValidator.isStockValid(stockWithoutVolume);
         }).isInstanceOf(ResponseStatusException.class)
@@ -127,8 +135,8 @@ class StockValidatorTest {
     void stockVolumeAcquiredLessOrEqualToZero() {
         Stock stockWithZeroVolume = new Stock(1L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                12.5, 0L, LocalDate.now(), new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 0L, LocalDate.now(), new Employee(1L));
         assertThatThrownBy(() -> {
             stockValidator.isStockValid(stockWithZeroVolume);
         }).isInstanceOf(ResponseStatusException.class)
@@ -139,12 +147,12 @@ class StockValidatorTest {
     void validListOfStocks() {
         Stock validStock = new Stock(1L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                12.5, 5L, LocalDate.now(), new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, LocalDate.now(), new Employee(1L));
         Stock validStock1 = new Stock(2L,
                 new ShareData(2L, "Another Company", "ACPY",
-                        "LVFE2562FA96", "Latvia", "Timber"),
-                10.5, 2L, LocalDate.of(2022,10,14), new Employee(1L));
+                        "LVFE2562FA93", "Latvia", "Timber"),
+                105_000L, 2L, LocalDate.of(2022,10,14), new Employee(1L));
         List<Stock> validStocks = List.of(validStock, validStock1);
         assertThat(stockValidator.validateAllStocks(validStocks)).isEqualTo(validStocks);
     }
@@ -153,12 +161,12 @@ class StockValidatorTest {
     void invalidListOfStocks() {
         Stock validStock = new Stock(1L,
                 new ShareData(1L, "First Company", "FCPY",
-                        "EEFE4592FA96", "Estonia", "Financial"),
-                12.5, 5L, LocalDate.now(), new Employee(1L));
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, LocalDate.now(), new Employee(1L));
         Stock invalidStock = new Stock(2L,
                 new ShareData(2L, "Another Company", "ACPY",
-                        "LVFE2562FA96", "Latvia", "Timber"),
-                10.5, 2L, null, new Employee(1L));
+                        "LVFE2562FA93", "Latvia", "Timber"),
+                105_000L, 2L, null, new Employee(1L));
         List<Stock> invalidStocks = List.of(validStock, invalidStock);
         assertThatThrownBy(() -> {
             stockValidator.validateAllStocks(invalidStocks);
@@ -166,4 +174,72 @@ class StockValidatorTest {
                 .hasMessageContaining("Problem with Stock nr 2 Stock date is missing");
 
     }
-}
\ No newline at end of file
+
+    @Test
+    void listOfStocksIsCheckedWithOneQueryPerTable() {
+        Stock validStock = new Stock(1L,
+                new ShareData(1L, "First Company", "FCPY",
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, LocalDate.now(), new Employee(1L));
+        Stock validStock1 = new Stock(2L,
+                new ShareData(2L, "Another Company", "ACPY",
+                        "LVFE2562FA93", "Latvia", "Timber"),
+                105_000L, 2L, LocalDate.of(2022,10,14), new Employee(1L));
+        stockValidator.validateAllStocks(List.of(validStock, validStock1));
+        verify(stockRepository).findExistingIds(Set.of(1L, 2L));
+        verify(employeeValidator).findExistingEmployeeIds(Set.of(1L));
+        verify(stockRepository, never()).existsById(anyLong());
+    }
+
+    @Test
+    void stockIdAlreadyInDatabaseInListThrowsError() {
+        Stock validStock = new Stock(1L,
+                new ShareData(1L, "First Company", "FCPY",
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, LocalDate.now(), new Employee(1L));
+        Stock existingStock = new Stock(2L,
+                new ShareData(2L, "Another Company", "ACPY",
+                        "LVFE2562FA93", "Latvia", "Timber"),
+                105_000L, 2L, LocalDate.of(2022,10,14), new Employee(1L));
+        when(stockRepository.findExistingIds(Set.of(1L, 2L))).thenReturn(List.of(2L));
+        assertThatThrownBy(() -> {
+            stockValidator.validateAllStocks(List.of(validStock, existingStock));
+        }).isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Problem with Stock nr 2 Purchase with this ID has been done already");
+    }
+
+    @Test
+    void repeatedStockIdInListThrowsError() {
+        Stock validStock = new Stock(1L,
+                new ShareData(1L, "First Company", "FCPY",
+                        "EEFE4592FA93", "Estonia", "Financial"),
+                125_000L, 5L, LocalDate.now(), new Employee(1L));
+        Stock repeatedStock = new Stock(1L,
+                new ShareData(2L, "Another Company", "ACPY",
+                        "LVFE2562FA93", "Latvia", "Timber"),
+                105_000L, 2L, LocalDate.of(2022,10,14), new Employee(1L));
+        assertThatThrownBy(() -> {
+            stockValidator.validateAllStocks(List.of(validStock, repeatedStock));
+        }).isInstanceOf(ResponseStatusException.class)
+                .hasMessageContaining("Problem with Stock nr 2 Stock ID is repeated in the batch");
+    }
+
+    @Test
+    void allProblemsOfAListAreFoundInOnePass() {
+        doCallRealMethod().when(shareDataValidator).findErrors(any(), anyInt(), anyList());
+        Stock invalidStock = new Stock(1L,
+                new ShareData(1L, "First Company", "FCPY",
+                        "EEFE4592FA96", "Estonia", "Financial"),
+                -125_000L, 5L, null, new Employee(1L));
+        Stock invalidStock1 = new Stock(null,
+                new ShareData(2L, "Another Company", "ACPY",
+                        "LVFE2562FA93", "Latvia", "Timber"),
+                105_000L, 0L, LocalDate.of(2022,10,14), new Employee(1L));
+        assertThat(stockValidator.findErrors(List.of(invalidStock, invalidStock1))).containsExactly(
+                new ValidationError(1, "pricePerShare", "Stock price per share has to be bigger than zero"),
+                new ValidationError(1, "date", "Stock date is missing"),
+                new ValidationError(1, "shareData.shareISINCode", "Share data ISIN code check digit is wrong"),
+                new ValidationError(2, "id", "Stock ID is missing"),
+                new ValidationError(2, "volumeAcquired", "Stock volume acquired has to be bigger than zero"));
+    }
+}